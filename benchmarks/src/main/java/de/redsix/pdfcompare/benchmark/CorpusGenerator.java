@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import de.redsix.pdfcompare.benchmark.SyntheticPages.Kind;
+
+/**
+ * Generates a corpus of document pairs for the {@link MacroBenchmark}. Every
+ * pair is a directory with an expected.pdf and an actual.pdf, named after its
+ * kind, format, number of pages and difference rate. The difference rate is the
+ * share of pages, that carry a small difference in the actual document. The
+ * same arguments always generate the same corpus.
+ *
+ * <pre>
+ * CorpusGenerator &lt;directory&gt; [kinds=TEXT,IMAGE,VECTOR] [formats=A4,A2] [pages=1,10,100] [differenceRates=0,0.1]
+ * </pre>
+ */
+public class CorpusGenerator {
+
+	private static final Map<String, PDRectangle> FORMATS = new HashMap<>();
+
+	static {
+		FORMATS.put("A4", PDRectangle.A4);
+		FORMATS.put("A2", PDRectangle.A2);
+		FORMATS.put("A0", PDRectangle.A0);
+		FORMATS.put("LETTER", PDRectangle.LETTER);
+	}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: CorpusGenerator <directory> [kinds=TEXT,IMAGE,VECTOR] [formats=A4,A2]"
+					+ " [pages=1,10,100] [differenceRates=0,0.1]");
+			System.exit(1);
+		}
+		final File directory = new File(args[0]);
+		final Map<String, String> options = Options.parse(args, 1);
+		for (final String kind : Options.list(options, "kinds", "TEXT,IMAGE,VECTOR")) {
+			for (final String format : Options.list(options, "formats", "A4,A2")) {
+				for (final String pages : Options.list(options, "pages", "1,10,100")) {
+					for (final String rate : Options.list(options, "differenceRates", "0,0.1")) {
+						generate(directory, Kind.valueOf(kind), format, Integer.parseInt(pages),
+								Double.parseDouble(rate));
+					}
+				}
+			}
+		}
+	}
+
+	public static File generate(final File directory, final Kind kind, final String format, final int pages,
+			final double differenceRate) throws IOException {
+		final PDRectangle pageFormat = FORMATS.get(format);
+		if (pageFormat == null) {
+			throw new IllegalArgumentException("Unknown format " + format + ", known are " + FORMATS.keySet());
+		}
+		final File pairDirectory = new File(directory, String.format(Locale.ROOT, "%s-%s-%05d-%.3f",
+				kind.name().toLowerCase(Locale.ROOT), format, pages, differenceRate));
+		if (!pairDirectory.isDirectory() && !pairDirectory.mkdirs()) {
+			throw new IOException("Could not create " + pairDirectory);
+		}
+		final List<Boolean> differences = new ArrayList<>(pages);
+		final Random random = new Random(pages);
+		for (int i = 0; i < pages; i++) {
+			differences.add(random.nextDouble() < differenceRate);
+		}
+		write(new File(pairDirectory, "expected.pdf"), kind, pageFormat, differences, false);
+		write(new File(pairDirectory, "actual.pdf"), kind, pageFormat, differences, true);
+		System.out.println("Generated " + pairDirectory);
+		return pairDirectory;
+	}
+
+	private static void write(final File file, final Kind kind, final PDRectangle format,
+			final List<Boolean> differences, final boolean actual) throws IOException {
+		final PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(64 * 1024 * 1024));
+		try {
+			for (int i = 0; i < differences.size(); i++) {
+				SyntheticPages.addPage(document, kind, format, i, actual && differences.get(i));
+			}
+			document.save(file);
+		} finally {
+			document.close();
+		}
+	}
+}
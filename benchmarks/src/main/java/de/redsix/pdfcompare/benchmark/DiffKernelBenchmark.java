@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.redsix.pdfcompare.DiffImage;
+import de.redsix.pdfcompare.Exclusions;
+import de.redsix.pdfcompare.ImageTools;
+import de.redsix.pdfcompare.ImageWithDimension;
+import de.redsix.pdfcompare.PageDiffCalculator;
+import de.redsix.pdfcompare.ResultCollector;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+/**
+ * Compares a pair of A4 pages at 300DPI pixel by pixel, which is what
+ * {@link DiffImage#diffImages()} does for every page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffKernelBenchmark {
+
+	private static final int WIDTH = 2480;
+	private static final int HEIGHT = 3508;
+
+	@Param({ "equal", "slightlyDifferent", "fullyDifferent" })
+	public String pages;
+
+	private ImageWithDimension expected;
+	private ImageWithDimension actual;
+	private SimpleEnvironment environment;
+	private Exclusions exclusions;
+
+	private final ResultCollector ignoringCollector = new ResultCollector() {
+
+		@Override
+		public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+				final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
+				final ImageWithDimension diffImage) {
+		}
+
+		@Override
+		public void noPagesFound() {
+		}
+
+		@Override
+		public void done() {
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		final BufferedImage expectedImage = textLikeImage(random);
+		final BufferedImage actualImage = ImageTools.deepCopy(expectedImage);
+		if ("slightlyDifferent".equals(pages)) {
+			for (int y = 1000; y < 1050; y++) {
+				for (int x = 300; x < 1200; x++) {
+					actualImage.setRGB(x, y, ~actualImage.getRGB(x, y));
+				}
+			}
+		} else if ("fullyDifferent".equals(pages)) {
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					actualImage.setRGB(x, y, ~actualImage.getRGB(x, y));
+				}
+			}
+		}
+		expected = new ImageWithDimension(expectedImage, 595, 842);
+		actual = new ImageWithDimension(actualImage, 595, 842);
+		environment = new SimpleEnvironment().setParallelProcessing(false);
+		exclusions = new Exclusions(environment);
+	}
+
+	@Benchmark
+	public BufferedImage diffImages() {
+		final DiffImage diffImage = new DiffImage(expected, actual, 0, environment, exclusions, ignoringCollector);
+		diffImage.diffImages();
+		return diffImage.getImage();
+	}
+
+	private static BufferedImage textLikeImage(final Random random) {
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final int white = 0xFFFFFF;
+		for (int y = 0; y < HEIGHT; y++) {
+			final boolean textLine = y % 60 < 35;
+			for (int x = 0; x < WIDTH; x++) {
+				final boolean ink = textLine && x > 200 && x < WIDTH - 200 && random.nextInt(4) == 0;
+				image.setRGB(x, y, ink ? 0 : white);
+			}
+		}
+		return image;
+	}
+}
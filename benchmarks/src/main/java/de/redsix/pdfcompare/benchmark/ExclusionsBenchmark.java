@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.redsix.pdfcompare.PageArea;
+import de.redsix.pdfcompare.PageExclusions;
+
+/**
+ * Looks up pixels in the exclusions of a page, which the diff kernel does for
+ * every pixel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExclusionsBenchmark {
+
+	private static final int LOOKUPS = 1024;
+
+	@Param({ "1", "10", "100", "500" })
+	public int areas;
+
+	private PageExclusions exclusions;
+	private int[] xs;
+	private int[] ys;
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		exclusions = new PageExclusions();
+		for (int i = 0; i < areas; i++) {
+			final int x = random.nextInt(2300);
+			final int y = random.nextInt(3300);
+			exclusions.add(new PageArea(1, x, y, x + random.nextInt(180), y + random.nextInt(200)));
+		}
+		xs = new int[LOOKUPS];
+		ys = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			xs[i] = random.nextInt(2480);
+			ys[i] = random.nextInt(3508);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int contains() {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			if (exclusions.contains(xs[i], ys[i])) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.redsix.pdfcompare.ImageTools;
+
+/**
+ * Fades pixels with {@link ImageTools}, which the diff kernel does for every
+ * equal or excluded pixel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageToolsBenchmark {
+
+	private static final int ELEMENTS = 4096;
+
+	private int[] elements;
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		elements = new int[ELEMENTS];
+		for (int i = 0; i < ELEMENTS; i++) {
+			elements[i] = random.nextInt();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public int fadeElement() {
+		int sum = 0;
+		for (final int element : elements) {
+			sum += ImageTools.fadeElement(element);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public int fadeExclusion() {
+		int sum = 0;
+		for (final int element : elements) {
+			sum += ImageTools.fadeExclusion(element);
+		}
+		return sum;
+	}
+}
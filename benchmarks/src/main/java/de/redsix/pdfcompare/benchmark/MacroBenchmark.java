@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.redsix.pdfcompare.CompareResultImpl;
+import de.redsix.pdfcompare.CompareResultWithCompressedImages;
+import de.redsix.pdfcompare.CompareResultWithMemoryOverflow;
+import de.redsix.pdfcompare.CompareResultWithPageOverflow;
+import de.redsix.pdfcompare.CompareResultWithStreamingOutput;
+import de.redsix.pdfcompare.PdfComparator;
+
+/**
+ * Runs the whole comparison, PdfComparator.compare() followed by writeTo(), for
+ * every document pair of a corpus made by the {@link CorpusGenerator} and every
+ * CompareResult variant. Each run gets a JVM of its own, so the peak memory of
+ * a run isn't blurred by earlier runs. The results are written as JSON.
+ *
+ * <pre>
+ * MacroBenchmark &lt;corpus directory&gt; &lt;report.json&gt; [variants=...] [repetitions=1] [jvmArgs=-Xmx2g]
+ * </pre>
+ *
+ * Per run the report contains the wall time, the CPU time of the process, the
+ * number of collections and the time spent in them as reported by the garbage
+ * collectors, the peak heap usage and the peak resident set size, where the
+ * operating system reports it (Linux), or -1.
+ */
+public class MacroBenchmark {
+
+	private static final String SINGLE_RUN = "--single";
+	private static final String RESULT_PREFIX = "RESULT ";
+	private static final String DEFAULT_VARIANTS = "CompareResultImpl,CompareResultWithMemoryOverflow,"
+			+ "CompareResultWithPageOverflow,CompareResultWithCompressedImages,CompareResultWithStreamingOutput";
+
+	private static final OutputStream DISCARD = new OutputStream() {
+
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length == 4 && SINGLE_RUN.equals(args[0])) {
+			System.out.println(RESULT_PREFIX + runSingle(new File(args[1]), new File(args[2]), args[3]));
+			return;
+		}
+		if (args.length < 2) {
+			System.err.println("Usage: MacroBenchmark <corpus directory> <report.json> [variants=" + DEFAULT_VARIANTS
+					+ "] [repetitions=1] [jvmArgs=-Xmx2g]");
+			System.exit(1);
+		}
+		final Map<String, String> options = Options.parse(args, 2);
+		final List<String> variants = Options.list(options, "variants", DEFAULT_VARIANTS);
+		final int repetitions = Integer.parseInt(Options.get(options, "repetitions", "1"));
+		final String jvmArgs = Options.get(options, "jvmArgs", "").trim();
+		final File[] pairs = new File(args[0]).listFiles();
+		if (pairs == null) {
+			throw new IOException("Corpus directory " + args[0] + " not found");
+		}
+		Arrays.sort(pairs);
+		final List<String> results = new ArrayList<>();
+		for (final File pair : pairs) {
+			if (!new File(pair, "expected.pdf").isFile()) {
+				continue;
+			}
+			for (final String variant : variants) {
+				for (int run = 1; run <= repetitions; run++) {
+					final String result = fork(pair, variant, jvmArgs);
+					System.out.println(pair.getName() + " " + variant + " #" + run + ": " + result);
+					results.add("{ \"pair\": \"" + pair.getName() + "\", \"variant\": \"" + variant + "\", \"run\": "
+							+ run + ", " + result.substring(2));
+				}
+			}
+		}
+		writeReport(new File(args[1]), jvmArgs, results);
+	}
+
+	private static String fork(final File pair, final String variant, final String jvmArgs)
+			throws IOException, InterruptedException {
+		final List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		if (!jvmArgs.isEmpty()) {
+			command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+		}
+		command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), MacroBenchmark.class.getName(),
+				SINGLE_RUN, new File(pair, "expected.pdf").getPath(), new File(pair, "actual.pdf").getPath(), variant));
+		final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		String result = null;
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(RESULT_PREFIX)) {
+					result = line.substring(RESULT_PREFIX.length());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		final int exitCode = process.waitFor();
+		if (exitCode != 0 || result == null) {
+			return "{ \"error\": \"exit code " + exitCode + "\" }";
+		}
+		return result;
+	}
+
+	private static String runSingle(final File expected, final File actual, final String variant) throws IOException {
+		final CompareResultImpl compareResult = create(variant);
+		final List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+		for (final MemoryPoolMXBean pool : memoryPools) {
+			pool.resetPeakUsage();
+		}
+		final long gcCountBefore = gcCount();
+		final long gcTimeBefore = gcTime();
+		final long cpuBefore = processCpuTime();
+		final long wallBefore = System.nanoTime();
+
+		new PdfComparator<CompareResultImpl>(expected, actual, compareResult).compare();
+		final boolean equal = compareResult.writeTo(DISCARD);
+
+		final long wallNanos = System.nanoTime() - wallBefore;
+		final long cpuNanos = processCpuTime() - cpuBefore;
+		long peakHeap = 0;
+		for (final MemoryPoolMXBean pool : memoryPools) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		final int pages = compareResult.getNumberOfPages();
+		return String.format(Locale.ROOT,
+				"{ \"pages\": %d, \"equal\": %b, \"wallMillis\": %.1f, \"cpuMillis\": %.1f, \"pagesPerSecond\": %.3f,"
+						+ " \"gcCount\": %d, \"gcMillis\": %d, \"peakHeapBytes\": %d, \"peakRssBytes\": %d }",
+				pages, equal, wallNanos / 1e6, cpuNanos / 1e6, pages / (wallNanos / 1e9), gcCount() - gcCountBefore,
+				gcTime() - gcTimeBefore, peakHeap, peakRss());
+	}
+
+	private static CompareResultImpl create(final String variant) {
+		if ("CompareResultImpl".equals(variant)) {
+			return new CompareResultImpl();
+		} else if ("CompareResultWithMemoryOverflow".equals(variant)) {
+			return new CompareResultWithMemoryOverflow();
+		} else if ("CompareResultWithPageOverflow".equals(variant)) {
+			return new CompareResultWithPageOverflow();
+		} else if ("CompareResultWithCompressedImages".equals(variant)) {
+			return new CompareResultWithCompressedImages();
+		} else if ("CompareResultWithStreamingOutput".equals(variant)) {
+			return new CompareResultWithStreamingOutput(DISCARD);
+		}
+		throw new IllegalArgumentException("Unknown variant " + variant);
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	private static long processCpuTime() {
+		final java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the high water mark of the resident set size from /proc, or -1 where
+	 * it is not available
+	 */
+	private static long peakRss() {
+		final File status = new File("/proc/self/status");
+		if (!status.isFile()) {
+			return -1;
+		}
+		try {
+			final BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(status), StandardCharsets.US_ASCII));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("VmHWM:")) {
+						return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// not available
+		}
+		return -1;
+	}
+
+	private static void writeReport(final File report, final String jvmArgs, final List<String> results)
+			throws IOException {
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8);
+		try {
+			writer.write("{\n  \"javaVersion\": \"" + System.getProperty("java.version") + "\",\n");
+			writer.write("  \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+			writer.write("  \"jvmArgs\": \"" + jvmArgs.replace("\\", "\\\\").replace("\"", "\\\"") + "\",\n");
+			writer.write("  \"results\": [");
+			String separator = "\n";
+			for (final String result : results) {
+				writer.write(separator + "    " + result);
+				separator = ",\n";
+			}
+			writer.write("\n  ]\n}\n");
+		} finally {
+			writer.close();
+		}
+		System.out.println("Report written to " + report);
+	}
+}
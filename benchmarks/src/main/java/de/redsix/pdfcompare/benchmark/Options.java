@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the key=value arguments of the command line tools in this module.
+ */
+final class Options {
+
+	private Options() {
+	}
+
+	static Map<String, String> parse(final String[] args, final int from) {
+		final Map<String, String> options = new HashMap<>();
+		for (int i = from; i < args.length; i++) {
+			final int separator = args[i].indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Expected key=value, but got " + args[i]);
+			}
+			options.put(args[i].substring(0, separator), args[i].substring(separator + 1));
+		}
+		return options;
+	}
+
+	static List<String> list(final Map<String, String> options, final String key, final String defaultValue) {
+		final String value = options.containsKey(key) ? options.get(key) : defaultValue;
+		return value.isEmpty() ? Arrays.<String>asList() : Arrays.asList(value.split(","));
+	}
+
+	static String get(final Map<String, String> options, final String key, final String defaultValue) {
+		return options.containsKey(key) ? options.get(key) : defaultValue;
+	}
+}
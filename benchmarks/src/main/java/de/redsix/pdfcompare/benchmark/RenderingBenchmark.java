@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.redsix.pdfcompare.ImageWithDimension;
+import de.redsix.pdfcompare.PdfComparator;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+/**
+ * Renders a page with {@link PdfComparator#renderPageAsImage}, like it is done
+ * for every page of both documents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderingBenchmark {
+
+	@Param({ "TEXT", "IMAGE", "VECTOR" })
+	public SyntheticPages.Kind kind;
+
+	private PDDocument document;
+	private PDFRenderer renderer;
+	private SimpleEnvironment environment;
+
+	@Setup
+	public void setUp() throws IOException {
+		document = PDDocument.load(SyntheticPages.createDocument(kind, PDRectangle.A4, 1, 42));
+		renderer = new PDFRenderer(document);
+		environment = new SimpleEnvironment();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		document.close();
+	}
+
+	@Benchmark
+	public ImageWithDimension renderPageAsImage() throws IOException {
+		return PdfComparator.renderPageAsImage(document, renderer, 0, environment);
+	}
+}
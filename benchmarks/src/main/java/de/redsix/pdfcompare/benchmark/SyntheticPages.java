@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Draws synthetic pages with PDFBox. The content of a page is fully determined
+ * by its kind, format and seed, so pages drawn with the same seed render
+ * identically and a different seed gives a differing page.
+ */
+public final class SyntheticPages {
+
+	public enum Kind {
+		TEXT, IMAGE, VECTOR
+	}
+
+	private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+			"elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua" };
+
+	private SyntheticPages() {
+	}
+
+	public static void addPage(final PDDocument document, final Kind kind, final PDRectangle format, final long seed)
+			throws IOException {
+		addPage(document, kind, format, seed, false);
+	}
+
+	/**
+	 * Adds a page, that optionally carries a small difference. The difference is a
+	 * little box at a position derived from the seed, so the page differs only
+	 * locally from the page without the difference.
+	 */
+	public static void addPage(final PDDocument document, final Kind kind, final PDRectangle format, final long seed,
+			final boolean withDifference) throws IOException {
+		final PDPage page = new PDPage(format);
+		document.addPage(page);
+		final PDPageContentStream content = new PDPageContentStream(document, page);
+		try {
+			final Random random = new Random(seed);
+			switch (kind) {
+			case TEXT:
+				drawText(content, format, random);
+				break;
+			case IMAGE:
+				drawImage(document, content, format, random);
+				break;
+			case VECTOR:
+				drawVectors(content, format, random);
+				break;
+			}
+			if (withDifference) {
+				final Random position = new Random(~seed);
+				content.setNonStrokingColor(200, 0, 0);
+				content.addRect(50 + position.nextFloat() * (format.getWidth() - 150),
+						50 + position.nextFloat() * (format.getHeight() - 150), 40, 12);
+				content.fill();
+			}
+		} finally {
+			content.close();
+		}
+	}
+
+	public static byte[] createDocument(final Kind kind, final PDRectangle format, final int pages, final long seed)
+			throws IOException {
+		final PDDocument document = new PDDocument();
+		try {
+			for (int i = 0; i < pages; i++) {
+				addPage(document, kind, format, seed + i);
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			document.save(out);
+			return out.toByteArray();
+		} finally {
+			document.close();
+		}
+	}
+
+	private static void drawText(final PDPageContentStream content, final PDRectangle format, final Random random)
+			throws IOException {
+		final float fontSize = 10;
+		final float leading = fontSize * 1.4f;
+		content.beginText();
+		content.setFont(PDType1Font.HELVETICA, fontSize);
+		content.setLeading(leading);
+		content.newLineAtOffset(50, format.getHeight() - 50);
+		final int lines = (int) ((format.getHeight() - 100) / leading);
+		for (int i = 0; i < lines; i++) {
+			final StringBuilder line = new StringBuilder();
+			while (line.length() < (format.getWidth() - 100) / (fontSize * 0.55f)) {
+				line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			content.showText(line.toString().trim());
+			content.newLine();
+		}
+		content.endText();
+	}
+
+	private static void drawImage(final PDDocument document, final PDPageContentStream content,
+			final PDRectangle format, final Random random) throws IOException {
+		final int width = 800;
+		final int height = 600;
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		final int r = random.nextInt(256);
+		final int g = random.nextInt(256);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, (r + x) % 256 << 16 | (g + y) % 256 << 8 | random.nextInt(64));
+			}
+		}
+		final PDImageXObject xObject = LosslessFactory.createFromImage(document, image);
+		final float drawnWidth = format.getWidth() - 100;
+		content.drawImage(xObject, 50, 50, drawnWidth, drawnWidth * height / width);
+	}
+
+	private static void drawVectors(final PDPageContentStream content, final PDRectangle format, final Random random)
+			throws IOException {
+		final float width = format.getWidth();
+		final float height = format.getHeight();
+		for (int i = 0; i < 500; i++) {
+			content.setStrokingColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+			content.setLineWidth(0.5f + random.nextFloat() * 2);
+			content.moveTo(random.nextFloat() * width, random.nextFloat() * height);
+			content.curveTo(random.nextFloat() * width, random.nextFloat() * height, random.nextFloat() * width,
+					random.nextFloat() * height, random.nextFloat() * width, random.nextFloat() * height);
+			content.stroke();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.redsix.pdfcompare.CompareResultImpl;
+import de.redsix.pdfcompare.ImageWithDimension;
+import de.redsix.pdfcompare.PageArea;
+import de.redsix.pdfcompare.PageDiffCalculator;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+/**
+ * Encodes the result images of a CompareResult into a PDF with
+ * {@link CompareResultImpl#writeTo(OutputStream)}. A CompareResult gives up its
+ * images when writing, so every invocation gets a fresh one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteToBenchmark {
+
+	private static final int PAGES = 4;
+
+	@Param({ "false", "true" })
+	public boolean outputPalette;
+
+	private BufferedImage image;
+	private SimpleEnvironment environment;
+	private CompareResultImpl result;
+
+	private static final OutputStream DISCARD = new OutputStream() {
+
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	@Setup
+	public void setUpImage() {
+		final Random random = new Random(42);
+		image = new BufferedImage(2480, 3508, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < image.getHeight(); y++) {
+			final boolean textLine = y % 60 < 35;
+			for (int x = 0; x < image.getWidth(); x++) {
+				final boolean ink = textLine && x > 200 && x < 2280 && random.nextInt(4) == 0;
+				image.setRGB(x, y, ink ? 0x404040 : 0xE0E0E0);
+			}
+		}
+		environment = new SimpleEnvironment().setOutputPalette(outputPalette).setDeduplicatePages(false);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpResult() {
+		result = new CompareResultImpl();
+		result.setEnvironment(environment);
+		final ImageWithDimension page = new ImageWithDimension(image, 595, 842);
+		for (int i = 0; i < PAGES; i++) {
+			final PageDiffCalculator diffCalculator = new PageDiffCalculator(true, false);
+			diffCalculator.addDiffArea(new PageArea(i + 1, 300, 1000, 1200, 1050));
+			result.addPage(diffCalculator, i, page, page, page);
+		}
+		result.done();
+	}
+
+	@Benchmark
+	public boolean writeTo() {
+		return result.writeTo(DISCARD);
+	}
+}
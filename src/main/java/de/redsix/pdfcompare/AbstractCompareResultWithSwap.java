@@ -16,96 +16,63 @@
  */
 package de.redsix.pdfcompare;
 
-import static de.redsix.pdfcompare.Utilities.blockingExecutor;
+import static de.redsix.pdfcompare.Utilities.blockingIoExecutor;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.TreeMap;
-import java.util.concurrent.Executor;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import lombok.Cleanup;
 import lombok.val;
 
-import org.apache.commons.collections4.IterableUtils;
-import org.apache.commons.io.filefilter.NameFileFilter;
-import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.joda.time.Duration;
 import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.redsix.pdfcompare.MetricsListener.Stage;
 import de.redsix.pdfcompare.env.Environment;
 
 /**
- * This CompareResult monitors the memory the JVM consumes through
- * Runtime.totalMemory() - Runtime.freeMemory() when a new page is added. When
- * the consumed memory crosses a threshold, images are swapped to disk and
- * removed from memory. The threshold defaults to 70% of Runtime.maxMemory() but
- * at least 200MB, which worked for me. After swapping, a System.gc() is
- * triggered.
+ * A CompareResult, that moves diff images out of the java heap, when
+ * {@link #needToSwap()} says so. Swapped images are kept as raw pixels in a
+ * {@link RasterStore}, first in direct memory and then in a memory mapped file.
+ * They are encoded into the result Pdf only once, when the result is written.
+ *
+ * Swapping is done by a separate Swap thread, so threads adding pages never
+ * wait for it. Only one swap is scheduled at a time. Before the images are
+ * written, the swap in flight is awaited.
  */
 public abstract class AbstractCompareResultWithSwap extends CompareResultImpl {
 
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractCompareResultWithSwap.class);
-	private File tempDir;
-	private boolean hasImages = false;
-	private boolean swapped;
-	private ExecutorService swapExecutor;
+	private final AtomicBoolean swapScheduled = new AtomicBoolean();
+	private volatile RasterStore swappedImages;
+	private volatile ExecutorService swapExecutor;
+	private volatile Future<?> swapInFlight;
 
 	@Override
-	public boolean writeTo(final String filename) {
-		if (!swapped) {
-			return super.writeTo(filename);
-		}
-		val mergerUtility = new PDFMergerUtility();
-		mergerUtility.setDestinationFileName(filename + ".pdf");
-		return writeTo(mergerUtility);
+	public void setEnvironment(final Environment environment) {
+		super.setEnvironment(environment);
+		swappedImages = new RasterStore(environment);
+		swapExecutor = blockingIoExecutor("Swap", 0, 1, 1, environment, metrics);
 	}
 
 	@Override
-	public boolean writeTo(final OutputStream outputStream) {
-		if (!swapped) {
-			return super.writeTo(outputStream);
-		}
-		final PDFMergerUtility mergerUtility = new PDFMergerUtility();
-		mergerUtility.setDestinationStream(outputStream);
-		return writeTo(mergerUtility);
-	}
-
-	private boolean writeTo(final PDFMergerUtility mergerUtility) {
-		swapToDisk();
-		Utilities.shutdownAndAwaitTermination(swapExecutor, "Swap");
-		try {
-			LOG.trace("Merging...");
-			val start = Instant.now();
-			for (val path : FileUtils.getPaths(getTempDir(), "partial_*")) {
-				mergerUtility.addSource(path);
-			}
-			mergerUtility.mergeDocuments(Utilities.getMemorySettings(environment.getMergeCacheSize()));
-			val end = Instant.now();
-			LOG.trace("Merging took: " + new Duration(start, end).getMillis() + "ms");
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		} finally {
-			if (tempDir != null) {
-				FileUtils.removeTempDir(tempDir);
-			}
-		}
-		return isEqual;
-	}
-
-	@Override
-	public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
 			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
 			final ImageWithDimension diffImage) {
+		if (isDone()) {
+			return;
+		}
 		super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
-		hasImages = true;
 		if (needToSwap()) {
-			swapToDisk();
-			afterSwap();
+			scheduleSwap();
 		}
 	}
 
@@ -114,72 +81,136 @@ public abstract class AbstractCompareResultWithSwap extends CompareResultImpl {
 
 	protected abstract boolean needToSwap();
 
-	private synchronized Executor getExecutor(Environment environment) {
-		if (swapExecutor == null) {
-			swapExecutor = blockingExecutor("Swap", 0, 2, 1, environment);
+	/**
+	 * A swap, that is handed to the executor after it was shut down, is dropped. It
+	 * is cancelled then, so the next page can schedule a swap again.
+	 */
+	private void scheduleSwap() {
+		final ExecutorService executor = swapExecutor;
+		if (executor == null || executor.isShutdown() || !swapScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		final FutureTask<Void> swap = new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					swapToDisk();
+					afterSwap();
+				} finally {
+					swapScheduled.set(false);
+				}
+			}
+		}, null);
+		swapInFlight = swap;
+		executor.execute(swap);
+		if (executor.isShutdown() && swap.cancel(false)) {
+			swapScheduled.set(false);
 		}
-		return swapExecutor;
 	}
 
-	private synchronized void swapToDisk() {
-		if (!diffImages.isEmpty()) {
-			val images = new TreeMap<Integer, ImageWithDimension>();
-			val iterator = diffImages.entrySet().iterator();
-			int previousPage = IterableUtils.get(diffImages.keySet(), 0).intValue();
-			while (iterator.hasNext()) {
-				val entry = iterator.next();
-				if (entry.getKey() <= previousPage + 1) {
-					images.put(entry.getKey(), entry.getValue());
-					iterator.remove();
-					previousPage = entry.getKey();
-				}
+	/**
+	 * Waits for the swap, that was scheduled last, to finish.
+	 */
+	private void awaitSwap() {
+		final Future<?> swap = swapInFlight;
+		if (swap != null) {
+			try {
+				swap.get();
+			} catch (CancellationException e) {
+				// the images stay in memory
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
 			}
-			if (!images.isEmpty()) {
-				swapped = true;
-				getExecutor(environment).execute(new Runnable() {
-					@Override
-					public void run() {
-						LOG.trace("Swapping {} pages to disk", images.size());
-						Instant start = Instant.now();
-
-						final int minPageIndex = images.keySet().iterator().next();
-						LOG.trace("minPageIndex: {}", minPageIndex);
-						try {
-							@Cleanup
-							val document = new PDDocument(Utilities.getMemorySettings(environment.getSwapCacheSize()));
-							document.setResourceCache(new ResourceCacheWithLimitedImages(environment));
-							addImagesToDocument(document, images);
-							val tempDir = getTempDir();
-							val tempFile = tempDir
-									.list(new NameFileFilter(String.format("partial_%06d.pdf", minPageIndex)));
-							document.save(new File(tempFile[0]));
-						} catch (IOException e) {
-							throw new RuntimeException(e);
-						}
-						Instant end = Instant.now();
-						LOG.trace("Swapping took: {}ms", new Duration(start, end).getMillis());
+		}
+	}
+
+	private void swapToDisk() {
+		if (!diffImages.isEmpty()) {
+			LOG.trace("Swapping pages");
+			val start = Instant.now();
+			val startNanos = System.nanoTime();
+			final Object event = FlightRecorderEvents.beginSwap();
+			int pages = 0;
+			long bytes = 0;
+			try {
+				for (val entry : diffImages.entrySet()) {
+					swappedImages.put(entry.getKey(), entry.getValue());
+					if (diffImages.remove(entry.getKey(), entry.getValue())) {
+						released(entry.getValue());
+						bytes += RasterMemoryBudget.sizeOf(entry.getValue());
+						pages++;
+					} else {
+						// replaced while swapping, the image in memory is the current one
+						swappedImages.take(entry.getKey());
 					}
-				});
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
+			FlightRecorderEvents.endSwap(event, pages, bytes);
+			metrics.stageFinished(Stage.SWAP, -1, System.nanoTime() - startNanos);
+			metrics.swapped(bytes);
+			LOG.trace("Swapping took: {}ms", new Duration(start, Instant.now()).getMillis());
 		}
 	}
 
+	/**
+	 * No more pages are added after this, so the Swap executor is shut down. A
+	 * running swap is finished.
+	 */
+	@Override
+	public void done() {
+		super.done();
+		Utilities.shutdownAndAwaitTermination(swapExecutor, "Swap");
+	}
+
 	@Override
-	protected synchronized boolean hasImages() {
-		return hasImages;
+	protected PDDocument newDocument() throws IOException {
+		return new PDDocument(Utilities.getMemorySettings(environment.getMergeCacheSize()));
 	}
 
-	private synchronized File getTempDir() throws IOException {
-		if (tempDir == null) {
-			tempDir = FileUtils.createTempDir("PdfCompare");
+	@Override
+	protected boolean hasImages() {
+		awaitSwap();
+		return super.hasImages() || (swappedImages != null && !swappedImages.isEmpty());
+	}
+
+	@Override
+	void writePages(final PageSink<?> sink) throws IOException {
+		awaitSwap();
+		if (swappedImages == null) {
+			super.writePages(sink);
+			return;
+		}
+		try {
+			val pages = new TreeSet<Integer>(diffImages.keySet());
+			pages.addAll(swappedImages.getPages());
+			for (final int page : pages) {
+				ImageWithDimension image = diffImages.remove(page);
+				if (image != null) {
+					released(image);
+				} else {
+					image = swappedImages.take(page);
+				}
+				sink.add(page, image, getDiffArea(page));
+			}
+			sink.finish();
+		} finally {
+			swappedImages.close();
 		}
-		return tempDir;
 	}
 
+	/**
+	 * Also drops the swapped images and removes their spill file.
+	 */
 	@Override
-	protected void finalize() throws Throwable {
-		if (swapExecutor != null) {
-			swapExecutor.shutdown();
+	public void close() {
+		Utilities.shutdownAndAwaitTermination(swapExecutor, "Swap");
+		super.close();
+		if (swappedImages != null) {
+			swappedImages.close();
 		}
 	}
 }
@@ -21,14 +21,29 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 public class BlockingHandler implements RejectedExecutionHandler {
 
+	private final String executorName;
+	private final MetricsListener metrics;
+
+	public BlockingHandler() {
+		this("", MetricsListener.NONE);
+	}
+
+	public BlockingHandler(final String executorName, final MetricsListener metrics) {
+		this.executorName = executorName;
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+		final long start = System.nanoTime();
 		try {
 			if (!executor.isShutdown()) {
 				executor.getQueue().put(r);
 			}
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
+		} finally {
+			metrics.blocked(executorName, System.nanoTime() - start);
 		}
 	}
 }
@@ -91,9 +91,10 @@ public interface CompareResult {
 	int getNumberOfPages();
 
 	/**
-	 * Gives a PageArea, that shows the area of a page, where differences where
-	 * found. There is only one PageArea per page, which contains all differences of
-	 * the page.
+	 * Gives the PageAreas, that show the areas of pages, where differences where
+	 * found. Differences on a page, that are not further apart than the
+	 * diffAreaMergeDistance of the Environment, are joined in one PageArea. The
+	 * PageAreas are ordered by page and from top to bottom.
 	 *
 	 * @return a collection of PageAreas, where differences where found.
 	 */
@@ -18,24 +18,32 @@ package de.redsix.pdfcompare;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.Cleanup;
+import lombok.val;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
+import de.redsix.pdfcompare.MetricsListener.Stage;
 import de.redsix.pdfcompare.env.Environment;
 
 /**
@@ -43,38 +51,61 @@ import de.redsix.pdfcompare.env.Environment;
  * CompareResult only stores the diffImages, for lower memory consumption. If
  * you also need the expected and actual Image, please use the Subclass
  * {@link CompareResultWithExpectedAndActual}
+ *
+ * Pages can be added concurrently from several threads without locking. Images
+ * and differences are kept in concurrent maps ordered by page and the
+ * aggregated flags only ever change in one direction.
+ *
+ * Writing the result drops its images. A result, that is not written, but kept
+ * around, should be closed, when its images are no longer needed.
  */
-public class CompareResultImpl implements ResultCollector, CompareResult {
+public class CompareResultImpl implements ResultCollector, CompareResult, Closeable {
 
 	protected Environment environment;
-	protected final Map<Integer, ImageWithDimension> diffImages = new TreeMap<Integer, ImageWithDimension>();
-	protected boolean isEqual = true;
-	protected boolean hasDifferenceInExclusion = false;
-	private boolean expectedOnly;
-	private boolean actualOnly;
-	private Collection<PageArea> diffAreas = new ArrayList<PageArea>();
-	private int pages = 0;
+	protected MetricsListener metrics = MetricsListener.NONE;
+	protected final ConcurrentNavigableMap<Integer, ImageWithDimension> diffImages = new ConcurrentSkipListMap<Integer, ImageWithDimension>();
+	protected volatile boolean isEqual = true;
+	protected volatile boolean hasDifferenceInExclusion = false;
+	private volatile boolean expectedOnly;
+	private volatile boolean actualOnly;
+	private static final String SUMMARY_FILE = "differences.json";
+	private static final String TRACE_FILE = "trace.json";
+	private final ConcurrentNavigableMap<Integer, PageArea> diffAreas = new ConcurrentSkipListMap<Integer, PageArea>();
+	private final ConcurrentNavigableMap<Integer, PageDiffCalculator> pageResults = new ConcurrentSkipListMap<Integer, PageDiffCalculator>();
+	private final AtomicInteger pages = new AtomicInteger();
+	private final AtomicLong retainedBytes = new AtomicLong();
+	private final Map<BufferedImage, Integer> rasterReferences = new IdentityHashMap<BufferedImage, Integer>();
+	private volatile RasterMemoryBudget.Charge budgetCharge;
+	private volatile boolean done;
 
 	@Override
 	public boolean writeTo(final String filename) {
-		return writeTo(new ThrowingConsumer<PDDocument, IOException>() {
+		final File file = new File(filename + ".pdf");
+		final Object event = FlightRecorderEvents.beginWrite();
+		final boolean result = writeTo(new ThrowingConsumer<PDDocument, IOException>() {
 			@Override
 			public void accept(PDDocument doc) throws IOException {
-				doc.save(filename + ".pdf");
+				doc.save(file);
 			}
 		});
+		FlightRecorderEvents.endWrite(event, getNumberOfPages(), file.length());
+		writeTrace(new File(filename + TimelineTracer.TRACE_FILE_SUFFIX));
+		return result;
 	}
 
 	@Override
 	public boolean writeTo(final OutputStream outputStream) {
 		notNull(outputStream, "OutputStream must not be null");
+		final Object event = FlightRecorderEvents.beginWrite();
+		final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
 		final boolean result = writeTo(new ThrowingConsumer<PDDocument, IOException>() {
 			@Override
 			public void accept(PDDocument doc) throws IOException {
-				doc.save(outputStream);
+				doc.save(countingStream);
 			}
 		});
 		silentlyCloseOutputStream(outputStream);
+		FlightRecorderEvents.endWrite(event, getNumberOfPages(), countingStream.getByteCount());
 		return result;
 	}
 
@@ -82,9 +113,13 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
 		if (hasImages()) {
 			try {
 				@Cleanup
-				PDDocument document = new PDDocument();
+				PDDocument document = newDocument();
+				long start = System.nanoTime();
 				addImagesToDocument(document);
+				metrics.stageFinished(Stage.MERGE, -1, System.nanoTime() - start);
+				start = System.nanoTime();
 				saver.accept(document);
+				metrics.stageFinished(Stage.WRITE, -1, System.nanoTime() - start);
 			} catch (IOException e) {
 				throw new RuntimeException(e);
 			}
@@ -100,39 +135,146 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
 		}
 	}
 
+	/**
+	 * Creates the document, the result is written into.
+	 *
+	 * @return a new, empty document
+	 * @throws IOException when the document can't be created
+	 */
+	protected PDDocument newDocument() throws IOException {
+		return new PDDocument();
+	}
+
 	/**
 	 * checks, whether this CompareResult has stored images.
 	 *
 	 * @return true, when images are stored in this CompareResult
 	 */
-	protected synchronized boolean hasImages() {
+	protected boolean hasImages() {
 		return !diffImages.isEmpty();
 	}
 
-	protected synchronized void addImagesToDocument(final PDDocument document) throws IOException {
-		addImagesToDocument(document, diffImages);
+	protected void addImagesToDocument(final PDDocument document) throws IOException {
+		@Cleanup
+		val encoder = new PageEncoder(document, environment);
+		writePages(encoder);
 	}
 
-	protected synchronized void addImagesToDocument(final PDDocument document,
-			final Map<Integer, ImageWithDimension> images) throws IOException {
-		final Iterator<Entry<Integer, ImageWithDimension>> iterator = images.entrySet().iterator();
+	/**
+	 * Hands the stored images in page order to the sink and finishes it. Unless
+	 * images are kept, they are removed from this CompareResult.
+	 */
+	void writePages(final PageSink<?> sink) throws IOException {
+		final Iterator<Entry<Integer, ImageWithDimension>> iterator = diffImages.entrySet().iterator();
 		while (iterator.hasNext()) {
 			final Entry<Integer, ImageWithDimension> entry = iterator.next();
 			if (!keepImages()) {
 				iterator.remove();
+				released(entry.getValue());
+			}
+			final PageArea diffArea = diffAreas.get(entry.getKey());
+			if (diffArea != null || !writeDifferencesOnly()) {
+				sink.add(entry.getKey(), entry.getValue(), diffArea);
+			}
+		}
+		sink.finish();
+	}
+
+	/**
+	 * Write the diff images as one PNG file per page into a directory instead of a
+	 * result Pdf. Warning: This will remove the diffImages from memory! Writing can
+	 * only be done once. Next to the images a file called differences.json is
+	 * written, that lists every page with its image file, the number of differing
+	 * pixels and the area with differences.
+	 *
+	 * @param directoryName the directory to write into. It is created, when it
+	 * doesn't exist.
+	 * @return a boolean indicating, whether the comparison is equal. When true, the
+	 * files are equal.
+	 */
+	public boolean writeImagesTo(final String directoryName) {
+		notNull(directoryName, "directoryName must not be null");
+		final File directory = new File(directoryName);
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create directory " + directory);
+			}
+			@Cleanup
+			val writer = new PageImageWriter(directory, environment);
+			final long start = System.nanoTime();
+			if (hasImages()) {
+				writePages(writer);
 			}
-			addPageToDocument(document, entry.getValue());
+			metrics.stageFinished(Stage.WRITE, -1, System.nanoTime() - start);
+			writeSummary(new File(directory, SUMMARY_FILE), writer.getFiles());
+			writeTrace(new File(directory, TRACE_FILE));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
+		return isEqual;
 	}
 
-	protected void addPageToDocument(final PDDocument document, final ImageWithDimension image) throws IOException {
-		PDPage page = new PDPage(new PDRectangle(image.width, image.height));
-		document.addPage(page);
-		final PDImageXObject imageXObject = LosslessFactory.createFromImage(document, image.bufferedImage);
+	private void writeSummary(final File file, final Map<Integer, String> imageFiles) throws IOException {
 		@Cleanup
-		PDPageContentStream contentStream = new PDPageContentStream(document, page);
-		contentStream.drawImage(imageXObject, 0, 0, image.width, image.height);
+		val json = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		json.beginObject();
+		json.name("equal").value(isEqual);
+		json.name("differenceInExclusion").value(hasDifferenceInExclusion);
+		json.name("pages").beginArray();
+		for (final Entry<Integer, PageDiffCalculator> entry : pageResults.entrySet()) {
+			final int pageIndex = entry.getKey();
+			final PageDiffCalculator diffCalculator = entry.getValue();
+			final PageArea diffArea = diffAreas.get(pageIndex);
+			json.beginObject();
+			json.name("page").value(pageIndex + 1);
+			json.name("image").value(imageFiles.get(pageIndex));
+			json.name("differencesFound").value(diffCalculator.differencesFound());
+			json.name("differingPixels").value(diffCalculator.getDiffsFound());
+			json.name("differingPixelsInExclusion").value(diffCalculator.getDiffsFoundInExclusion());
+			json.name("diffArea");
+			if (diffArea != null && diffArea.getX1() >= 0) {
+				writeArea(json, diffArea);
+			} else {
+				json.nullValue();
+			}
+			json.name("differences").beginArray();
+			if (!diffCalculator.getDiffAreas().isEmpty()) {
+				for (final PageArea difference : diffCalculator.getDiffAreas()) {
+					writeArea(json, difference);
+				}
+			} else if (diffArea != null && diffArea.getX1() >= 0) {
+				writeArea(json, diffArea);
+			}
+			json.endArray();
+			json.endObject();
+		}
+		json.endArray();
+		json.endObject();
+	}
 
+	private static void writeArea(final JsonWriter json, final PageArea area) throws IOException {
+		json.beginObject();
+		json.name("x1").value(area.getX1());
+		json.name("y1").value(area.getY1());
+		json.name("x2").value(area.getX2());
+		json.name("y2").value(area.getY2());
+		json.endObject();
+	}
+
+	/**
+	 * Writes the timeline of the comparison, when a {@link TimelineTracer} was
+	 * registered as metrics listener.
+	 *
+	 * @param file the file to write the trace to
+	 */
+	protected void writeTrace(final File file) {
+		if (metrics instanceof TimelineTracer) {
+			try {
+				((TimelineTracer) metrics).writeTo(file);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 
 	protected boolean keepImages() {
@@ -140,19 +282,153 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
 	}
 
 	@Override
-	public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
 			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
 			final ImageWithDimension diffImage) {
+		if (isDone()) {
+			return;
+		}
 		notNull(expectedImage, "expectedImage is null");
 		notNull(actualImage, "actualImage is null");
 		notNull(diffImage, "diffImage is null");
-		this.hasDifferenceInExclusion |= diffCalculator.differencesFoundInExclusion();
+		if (diffCalculator.differencesFoundInExclusion()) {
+			hasDifferenceInExclusion = true;
+		}
+		pageResults.put(pageIndex, diffCalculator);
 		if (diffCalculator.differencesFound()) {
 			isEqual = false;
-			diffAreas.add(diffCalculator.getDiffArea());
+			final PageArea diffArea = diffCalculator.getDiffArea();
+			diffAreas.put(pageIndex, diffArea != null ? diffArea : new PageArea(pageIndex + 1));
+		}
+		if (retainDiffImage(diffCalculator)) {
+			retained(diffImage);
+			final ImageWithDimension previous = diffImages.put(pageIndex, diffImage);
+			if (previous != null) {
+				released(previous);
+			}
+		}
+		pages.incrementAndGet();
+	}
+
+	/**
+	 * Decides, whether the diff image of a page is kept for the result Pdf. When
+	 * the Environment says to write only differences, images of equal pages are
+	 * dropped right away.
+	 *
+	 * @param diffCalculator the outcome of the comparison of the page
+	 * @return true, when the diff image should be kept
+	 */
+	protected boolean retainDiffImage(final PageDiffCalculator diffCalculator) {
+		return diffCalculator.differencesFound() || !writeDifferencesOnly();
+	}
+
+	private boolean writeDifferencesOnly() {
+		return environment != null && environment.writeDifferencesOnly();
+	}
+
+	/**
+	 * Accounts for an image, that this result holds on to in the heap. Pages can
+	 * share their images, so every raster is only counted once, no matter how many
+	 * pages retain it.
+	 *
+	 * @param image the retained image
+	 */
+	protected void retained(final ImageWithDimension image) {
+		final Integer references;
+		synchronized (rasterReferences) {
+			references = rasterReferences.get(image.bufferedImage);
+			rasterReferences.put(image.bufferedImage, references == null ? 1 : references + 1);
+		}
+		if (references == null) {
+			retained(RasterMemoryBudget.sizeOf(image));
+		}
+	}
+
+	/**
+	 * Accounts for image data of the given size, that this result holds on to in
+	 * the heap.
+	 *
+	 * @param bytes the size of the retained data
+	 */
+	protected void retained(final long bytes) {
+		retainedBytes.addAndGet(bytes);
+		if (chargesMemoryBudget()) {
+			budgetCharge().allocate(bytes);
 		}
-		diffImages.put(pageIndex, diffImage);
-		pages++;
+	}
+
+	/**
+	 * Accounts for an image, that was retained before and is no longer held. The
+	 * raster is released, when no page retains it anymore.
+	 *
+	 * @param image the released image
+	 */
+	protected void released(final ImageWithDimension image) {
+		final Integer references;
+		synchronized (rasterReferences) {
+			references = rasterReferences.remove(image.bufferedImage);
+			if (references != null && references > 1) {
+				rasterReferences.put(image.bufferedImage, references - 1);
+			}
+		}
+		if (references != null && references == 1) {
+			released(RasterMemoryBudget.sizeOf(image));
+		}
+	}
+
+	/**
+	 * Accounts for image data of the given size, that was retained before and is no
+	 * longer held.
+	 *
+	 * @param bytes the size of the released data
+	 */
+	protected void released(final long bytes) {
+		retainedBytes.addAndGet(-bytes);
+		if (chargesMemoryBudget()) {
+			budgetCharge().release(bytes);
+		}
+	}
+
+	private RasterMemoryBudget.Charge budgetCharge() {
+		RasterMemoryBudget.Charge charge = budgetCharge;
+		if (charge == null) {
+			synchronized (rasterReferences) {
+				charge = budgetCharge;
+				if (charge == null) {
+					charge = RasterMemoryBudget.global().chargeFor(this);
+					budgetCharge = charge;
+				}
+			}
+		}
+		return charge;
+	}
+
+	/**
+	 * Decides, whether the retained images are charged to the global
+	 * {@link RasterMemoryBudget}. Only results, that react to the budget, charge
+	 * it, so results, that are kept by the caller, don't make others swap. What a
+	 * result did not release, is released, when it is garbage collected.
+	 *
+	 * @return true, when the retained images count against the budget
+	 */
+	protected boolean chargesMemoryBudget() {
+		return false;
+	}
+
+	/**
+	 * @param pageIndex the index of the page starting with 0
+	 * @return the area with differences on the page or null, when the page has no
+	 * differences
+	 */
+	protected PageArea getDiffArea(final int pageIndex) {
+		return diffAreas.get(pageIndex);
+	}
+
+	/**
+	 * @return the bytes of all images this result holds on to in the heap
+	 */
+	protected long getRetainedBytes() {
+		return retainedBytes.get();
 	}
 
 	@Override
@@ -192,12 +468,46 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
 
 	@Override
 	public int getNumberOfPages() {
-		return pages;
+		return pages.get();
 	}
 
 	@Override
 	public Collection<PageArea> getDifferences() {
-		return diffAreas;
+		final List<PageArea> differences = new ArrayList<PageArea>();
+		for (final Entry<Integer, PageArea> entry : diffAreas.entrySet()) {
+			final PageDiffCalculator pageResult = pageResults.get(entry.getKey());
+			if (pageResult != null && !pageResult.getDiffAreas().isEmpty()) {
+				differences.addAll(pageResult.getDiffAreas());
+			} else {
+				differences.add(entry.getValue());
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Gives a bit mask of the pixels, that differ on a page outside of excluded
+	 * areas. Masks are only collected, when enabled in the Environment.
+	 *
+	 * @param pageIndex the index of the page starting with 0
+	 * @return the mask or null, when no pixel differs or masks are not collected
+	 */
+	public DifferenceMask getDifferenceMask(final int pageIndex) {
+		final PageDiffCalculator diffCalculator = pageResults.get(pageIndex);
+		return diffCalculator == null ? null : diffCalculator.getDifferenceMask();
+	}
+
+	/**
+	 * Gives a bit mask of the pixels, that differ on a page inside of excluded
+	 * areas. Masks are only collected, when enabled in the Environment.
+	 *
+	 * @param pageIndex the index of the page starting with 0
+	 * @return the mask or null, when no pixel differs there or masks are not
+	 * collected
+	 */
+	public DifferenceMask getDifferenceInExclusionMask(final int pageIndex) {
+		final PageDiffCalculator diffCalculator = pageResults.get(pageIndex);
+		return diffCalculator == null ? null : diffCalculator.getDifferenceInExclusionMask();
 	}
 
 	public void expectedOnly() {
@@ -212,8 +522,46 @@ public class CompareResultImpl implements ResultCollector, CompareResult {
 		this.environment = environment;
 	}
 
+	/**
+	 * Sets the listener for measurements of writing and swapping. Has to be set
+	 * before the environment.
+	 */
+	public void setMetrics(final MetricsListener metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void done() {
+		done = true;
+	}
+
+	/**
+	 * Nothing is added for a page, that could not be rendered.
+	 */
+	@Override
+	public void pageFailed(final int pageIndex) {
+	}
 
+	/**
+	 * Pages, that are added after done was called, come from a comparison, that was
+	 * cancelled or timed out, and are ignored.
+	 *
+	 * @return true, when done was called
+	 */
+	protected boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Drops the images, that this result still holds, and releases their memory.
+	 * Afterwards the result still reports the differences, but has no images left
+	 * to write.
+	 */
+	@Override
+	public void close() {
+		Entry<Integer, ImageWithDimension> entry;
+		while ((entry = diffImages.pollFirstEntry()) != null) {
+			released(entry.getValue());
+		}
 	}
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.io.IOException;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A CompareResult, that keeps its diff images in memory, but compressed with a
+ * run-length encoding per row. Diff images are mostly white or uniformly faded
+ * and typically shrink many times, so results of long documents can stay in the
+ * heap without swapping. Images are compressed, when a page is added, and
+ * restored one by one, when the result is written.
+ */
+public class CompareResultWithCompressedImages extends CompareResultImpl {
+
+	private final ConcurrentNavigableMap<Integer, CompressedImage> compressedImages = new ConcurrentSkipListMap<Integer, CompressedImage>();
+
+	@Override
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
+			final ImageWithDimension diffImage) {
+		if (isDone()) {
+			return;
+		}
+		super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+		final ImageWithDimension image = diffImages.remove(pageIndex);
+		if (image != null) {
+			released(image);
+			final CompressedImage compressed = CompressedImage.of(image);
+			retained(compressed.getSize());
+			final CompressedImage previous = compressedImages.put(pageIndex, compressed);
+			if (previous != null) {
+				released(previous.getSize());
+			}
+		}
+	}
+
+	@Override
+	protected boolean hasImages() {
+		return super.hasImages() || !compressedImages.isEmpty();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		Entry<Integer, CompressedImage> entry;
+		while ((entry = compressedImages.pollFirstEntry()) != null) {
+			released(entry.getValue().getSize());
+		}
+	}
+
+	@Override
+	void writePages(final PageSink<?> sink) throws IOException {
+		Entry<Integer, CompressedImage> entry;
+		while ((entry = compressedImages.pollFirstEntry()) != null) {
+			released(entry.getValue().getSize());
+			sink.add(entry.getKey(), entry.getValue().restore(), getDiffArea(entry.getKey()));
+		}
+		sink.finish();
+	}
+}
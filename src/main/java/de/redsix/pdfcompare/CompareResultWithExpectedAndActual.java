@@ -17,25 +17,49 @@
 package de.redsix.pdfcompare;
 
 import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * A CompareResult, that also stores the expected and actual Image and also
  * keeps diffImages in memory for later display.
+ *
+ * The actual image is usually nearly identical to the expected image, so it is
+ * stored as an {@link ImageDelta} against the expected image and restored on
+ * demand. The restored image is cached softly, so repeated calls return the
+ * same image, until memory runs short.
  */
 public class CompareResultWithExpectedAndActual extends CompareResultImpl {
 
-	private final Map<Integer, ImageWithDimension> expectedImages = new TreeMap<Integer, ImageWithDimension>();
-	private final Map<Integer, ImageWithDimension> actualImages = new TreeMap<Integer, ImageWithDimension>();
+	private final Map<Integer, ImageWithDimension> expectedImages = new ConcurrentSkipListMap<Integer, ImageWithDimension>();
+	private final Map<Integer, ImageWithDimension> actualImages = new ConcurrentSkipListMap<Integer, ImageWithDimension>();
+	private final Map<Integer, ImageDelta> actualDeltas = new ConcurrentSkipListMap<Integer, ImageDelta>();
+	private final Map<Integer, SoftReference<BufferedImage>> restoredActualImages = new ConcurrentSkipListMap<Integer, SoftReference<BufferedImage>>();
 
 	@Override
-	public synchronized void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
 			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
 			final ImageWithDimension diffImage) {
+		if (isDone()) {
+			return;
+		}
 		super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+		retained(expectedImage);
 		expectedImages.put(pageIndex, expectedImage);
-		actualImages.put(pageIndex, actualImage);
+		final ImageDelta delta = ImageDelta.of(expectedImage.bufferedImage, actualImage.bufferedImage);
+		if (delta != null) {
+			retained(delta.getSize());
+			actualDeltas.put(pageIndex, delta);
+		} else {
+			retained(actualImage);
+			actualImages.put(pageIndex, actualImage);
+		}
+	}
+
+	@Override
+	protected boolean retainDiffImage(final PageDiffCalculator diffCalculator) {
+		return true;
 	}
 
 	@Override
@@ -43,7 +67,25 @@ public class CompareResultWithExpectedAndActual extends CompareResultImpl {
 		return true;
 	}
 
-	public synchronized BufferedImage getDiffImage(final int page) {
+	/**
+	 * Also drops the expected and actual images.
+	 */
+	@Override
+	public void close() {
+		super.close();
+		for (final Integer page : expectedImages.keySet()) {
+			released(expectedImages.remove(page));
+		}
+		for (final Integer page : actualImages.keySet()) {
+			released(actualImages.remove(page));
+		}
+		for (final Integer page : actualDeltas.keySet()) {
+			released(actualDeltas.remove(page).getSize());
+		}
+		restoredActualImages.clear();
+	}
+
+	public BufferedImage getDiffImage(final int page) {
 		return getBufferedImageOrNull(diffImages.get(page));
 	}
 
@@ -52,6 +94,16 @@ public class CompareResultWithExpectedAndActual extends CompareResultImpl {
 	}
 
 	public BufferedImage getActualImage(final int page) {
+		final ImageDelta delta = actualDeltas.get(page);
+		if (delta != null) {
+			final SoftReference<BufferedImage> cached = restoredActualImages.get(page);
+			BufferedImage image = cached == null ? null : cached.get();
+			if (image == null) {
+				image = delta.restore(expectedImages.get(page).bufferedImage);
+				restoredActualImages.put(page, new SoftReference<BufferedImage>(image));
+			}
+			return image;
+		}
 		return getBufferedImageOrNull(actualImages.get(page));
 	}
 
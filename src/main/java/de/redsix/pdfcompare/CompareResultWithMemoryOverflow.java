@@ -17,43 +17,42 @@
 package de.redsix.pdfcompare;
 
 /**
- * This CompareResult monitors the memory the JVM consumes through
- * Runtime.totalMemory() - Runtime.freeMemory() when a new page is added. When
- * the consumed memory crosses a threshold, images are swapped to disk and
- * removed from memory. The threshold defaults to 70% of Runtime.maxMemory() but
- * at least 200MB, which worked for me. After swapping, a System.gc() is
- * triggered.
+ * This CompareResult swaps its images out of the heap, when the images held by
+ * all CompareResults in this JVM exceed the {@link RasterMemoryBudget}. The
+ * size of the images is calculated exactly from their pixel data, so the
+ * decision does not depend on garbage collection and needs no System.gc().
  */
 public class CompareResultWithMemoryOverflow extends AbstractCompareResultWithSwap {
 
-	private long maxMemoryUsage = Math.min(Math.round(Runtime.getRuntime().maxMemory() * 0.7),
-			Runtime.getRuntime().maxMemory() - 200 * 1024 * 1024);
+	private final long maxMemoryUsage;
 
 	/**
-	 * Defaults to 70% of the available maxMemory reported by the JVM.
+	 * Swaps, when the global {@link RasterMemoryBudget} is exceeded, which defaults
+	 * to 50% of the available maxMemory reported by the JVM.
 	 */
 	public CompareResultWithMemoryOverflow() {
+		this.maxMemoryUsage = Long.MAX_VALUE;
 	}
 
 	/**
-	 * Stores images to disk, when the used memory is higher than the given theshold
-	 * in megabytes.
+	 * Swaps, when the images held by this CompareResult are larger than the given
+	 * theshold in megabytes or when the global {@link RasterMemoryBudget} is
+	 * exceeded.
 	 *
 	 * @param approximateMaxMemoryUsageInMegaBytes the maximum memory to use in
 	 * megabytes
 	 */
 	public CompareResultWithMemoryOverflow(final int approximateMaxMemoryUsageInMegaBytes) {
-		this.maxMemoryUsage = approximateMaxMemoryUsageInMegaBytes * 1024 * 1024;
+		this.maxMemoryUsage = approximateMaxMemoryUsageInMegaBytes * 1024L * 1024L;
 	}
 
 	@Override
 	protected boolean needToSwap() {
-		long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-		return usedMemory >= maxMemoryUsage;
+		return getRetainedBytes() >= maxMemoryUsage || RasterMemoryBudget.global().isExceeded();
 	}
 
 	@Override
-	protected void afterSwap() {
-		System.gc();
+	protected boolean chargesMemoryBudget() {
+		return true;
 	}
 }
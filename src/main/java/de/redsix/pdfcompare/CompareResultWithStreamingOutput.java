@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import de.redsix.pdfcompare.MetricsListener.Stage;
+import de.redsix.pdfcompare.PageEncoder.EncodedImage;
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * A CompareResult, that writes each page into the result Pdf as soon as its
+ * diff is done. The image of a page is handed to the Encode threads right away
+ * and dropped, once it is encoded. Encoded pages finishing out of order wait in
+ * a reorder buffer until all previous pages are written. Pages, that could not
+ * be rendered, are skipped. The document keeps its content in a scratch file
+ * beyond the merge cache and is saved to the target given at construction, when
+ * the comparison is done.
+ *
+ * Because the result is written during the comparison,
+ * {@link #writeTo(String)}, {@link #writeTo(OutputStream)} and
+ * {@link #writeImagesTo(String)} don't write anything and only report, whether
+ * the documents are equal. Passing another target than the one given at
+ * construction is an error.
+ */
+public class CompareResultWithStreamingOutput extends CompareResultImpl {
+
+	private final String filename;
+	private final OutputStream outputStream;
+	private final Object writeLock = new Object();
+	private PDDocument document;
+	private PageEncoder encoder;
+	private final SortedMap<Integer, Future<EncodedImage>> finishedPages = new TreeMap<Integer, Future<EncodedImage>>();
+	private final Runnable writeEncodedPages = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (writeLock) {
+				writePages(false);
+			}
+		}
+	};
+	private int nextPage;
+	private RuntimeException writeFailure;
+
+	/**
+	 * Writes the result Pdf into a file.
+	 *
+	 * @param filename without pdf-Extension
+	 */
+	public CompareResultWithStreamingOutput(final String filename) {
+		notNull(filename, "filename must not be null");
+		this.filename = filename;
+		this.outputStream = null;
+	}
+
+	/**
+	 * Writes the result Pdf to an OutputStream. The OutputStream is closed, when
+	 * the comparison is done.
+	 *
+	 * @param outputStream to write the pdfFile to.
+	 */
+	public CompareResultWithStreamingOutput(final OutputStream outputStream) {
+		notNull(outputStream, "OutputStream must not be null");
+		this.filename = null;
+		this.outputStream = outputStream;
+	}
+
+	@Override
+	public void setEnvironment(final Environment environment) {
+		super.setEnvironment(environment);
+		synchronized (writeLock) {
+			try {
+				document = newDocument();
+				encoder = new PageEncoder(document, environment);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@Override
+	protected PDDocument newDocument() throws IOException {
+		return new PDDocument(Utilities.getMemorySettings(environment.getMergeCacheSize()));
+	}
+
+	@Override
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
+			final ImageWithDimension diffImage) {
+		if (isDone()) {
+			return;
+		}
+		super.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+		final ImageWithDimension image = diffImages.remove(pageIndex);
+		Future<EncodedImage> encoding = null;
+		if (image != null) {
+			released(image);
+			encoding = encoder.encodeLater(pageIndex, image, getDiffArea(pageIndex), writeEncodedPages);
+		}
+		synchronized (writeLock) {
+			finishedPages.put(pageIndex, encoding);
+			writePages(false);
+		}
+	}
+
+	/**
+	 * A page, that could not be rendered, is skipped, so the pages after it are not
+	 * held back until the comparison is done.
+	 */
+	@Override
+	public void pageFailed(final int pageIndex) {
+		synchronized (writeLock) {
+			finishedPages.put(pageIndex, null);
+			writePages(false);
+		}
+	}
+
+	/**
+	 * Writes the encoded pages in order. Unless all pages should be written, this
+	 * stops at the first page, that is not done yet or still being encoded. The
+	 * Encode thread of that page continues, when it is done. Pages without an image
+	 * are skipped. When a page can't be written, the failure is kept for done and
+	 * the remaining pages are still written.
+	 */
+	private void writePages(final boolean all) {
+		if (document == null) {
+			return;
+		}
+		while (!finishedPages.isEmpty() && (all || finishedPages.firstKey() == nextPage)) {
+			final int page = finishedPages.firstKey();
+			final Future<EncodedImage> encoding = finishedPages.get(page);
+			if (!all && encoding != null && !encoding.isDone()) {
+				return;
+			}
+			finishedPages.remove(page);
+			nextPage = page + 1;
+			if (encoding != null) {
+				try {
+					encoder.write(page, PageSink.get(encoding));
+				} catch (IOException e) {
+					writeFailed(new RuntimeException(e));
+				} catch (RuntimeException e) {
+					writeFailed(e);
+				}
+			}
+		}
+	}
+
+	private void writeFailed(final RuntimeException e) {
+		if (writeFailure == null) {
+			writeFailure = e;
+		}
+	}
+
+	/**
+	 * @return the number of pages, that wait in the reorder buffer
+	 */
+	int getBufferedPages() {
+		synchronized (writeLock) {
+			return finishedPages.size();
+		}
+	}
+
+	/**
+	 * The encodings are awaited and the Encode threads are shut down outside of the
+	 * lock, because a thread, that just finished a page, may be waiting for it.
+	 */
+	@Override
+	public void done() {
+		super.done();
+		awaitEncodings();
+		try {
+			synchronized (writeLock) {
+				writeDocument();
+			}
+		} finally {
+			if (encoder != null) {
+				encoder.close();
+			}
+		}
+	}
+
+	private void awaitEncodings() {
+		final List<Future<EncodedImage>> encodings;
+		synchronized (writeLock) {
+			encodings = new ArrayList<Future<EncodedImage>>(finishedPages.values());
+		}
+		for (final Future<EncodedImage> encoding : encodings) {
+			if (encoding != null) {
+				try {
+					PageSink.get(encoding);
+				} catch (IOException e) {
+					// reported, when the page is written
+				} catch (RuntimeException e) {
+					// reported, when the page is written
+				}
+			}
+		}
+	}
+
+	private void writeDocument() {
+		if (document == null) {
+			return;
+		}
+		try {
+			final Object event = FlightRecorderEvents.beginWrite();
+			long start = System.nanoTime();
+			writePages(true);
+			if (writeFailure != null) {
+				throw writeFailure;
+			}
+			encoder.finish();
+			metrics.stageFinished(Stage.MERGE, -1, System.nanoTime() - start);
+			final int pages = document.getNumberOfPages();
+			long bytesWritten = 0;
+			if (pages > 0) {
+				start = System.nanoTime();
+				if (filename != null) {
+					final File file = new File(filename + ".pdf");
+					document.save(file);
+					bytesWritten = file.length();
+				} else {
+					final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+					document.save(countingStream);
+					bytesWritten = countingStream.getByteCount();
+				}
+				metrics.stageFinished(Stage.WRITE, -1, System.nanoTime() - start);
+			}
+			FlightRecorderEvents.endWrite(event, pages, bytesWritten);
+			if (filename != null) {
+				writeTrace(new File(filename + TimelineTracer.TRACE_FILE_SUFFIX));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			closeDocument();
+		}
+	}
+
+	private void closeDocument() {
+		try {
+			document.close();
+			if (outputStream != null) {
+				outputStream.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			document = null;
+		}
+	}
+
+	/**
+	 * The result was already written, when the comparison was done.
+	 *
+	 * @param filename the filename given at construction
+	 * @return a boolean indicating, whether the comparison is equal.
+	 * @throws IllegalArgumentException when the result was written somewhere else
+	 */
+	@Override
+	public boolean writeTo(final String filename) {
+		if (!filename.equals(this.filename)) {
+			throw new IllegalArgumentException(
+					"The result was already written to " + target() + " and can't be written to " + filename);
+		}
+		return isEqual;
+	}
+
+	/**
+	 * The result was already written, when the comparison was done.
+	 *
+	 * @param outputStream the OutputStream given at construction
+	 * @return a boolean indicating, whether the comparison is equal.
+	 * @throws IllegalArgumentException when the result was written somewhere else
+	 */
+	@Override
+	public boolean writeTo(final OutputStream outputStream) {
+		if (outputStream != this.outputStream) {
+			throw new IllegalArgumentException(
+					"The result was already written to " + target() + " and can't be written to another OutputStream");
+		}
+		return isEqual;
+	}
+
+	private String target() {
+		return filename != null ? filename : "the OutputStream given at construction";
+	}
+
+	/**
+	 * The result was already written as a Pdf, when the comparison was done, and no
+	 * images are left to write.
+	 *
+	 * @param directoryName is ignored
+	 * @return a boolean indicating, whether the comparison is equal.
+	 */
+	@Override
+	public boolean writeImagesTo(final String directoryName) {
+		return isEqual;
+	}
+
+	/**
+	 * Discards the result document, when the comparison was not done. The
+	 * OutputStream given at construction is left open then.
+	 */
+	@Override
+	public void close() {
+		try {
+			synchronized (writeLock) {
+				if (document != null) {
+					document.close();
+					document = null;
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (encoder != null) {
+				encoder.close();
+			}
+		}
+		super.close();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * An image compressed with a run-length encoding per row. Diff images are
+ * mostly white or uniformly faded, so most rows shrink to a few runs. Every row
+ * starts with the number of runs, followed by pairs of run length and color.
+ * Rows, that wouldn't get smaller, are stored as plain pixels marked by a run
+ * count of -1.
+ */
+class CompressedImage {
+
+	private static final int LITERAL_ROW = -1;
+	private final int[] data;
+	private final int pixelWidth;
+	private final int pixelHeight;
+	private final boolean alpha;
+	private final float width;
+	private final float height;
+
+	private CompressedImage(final ImageWithDimension image, final int[] data) {
+		this.data = data;
+		this.pixelWidth = image.bufferedImage.getWidth();
+		this.pixelHeight = image.bufferedImage.getHeight();
+		this.alpha = image.bufferedImage.getColorModel().hasAlpha();
+		this.width = image.width;
+		this.height = image.height;
+	}
+
+	static CompressedImage of(final ImageWithDimension image) {
+		final BufferedImage bufferedImage = image.bufferedImage;
+		final int width = bufferedImage.getWidth();
+		final int[] row = new int[width];
+		final int[] runs = new int[width * 2];
+		int[] data = new int[Math.max(64, bufferedImage.getHeight() * 4)];
+		int size = 0;
+		for (int y = 0; y < bufferedImage.getHeight(); y++) {
+			bufferedImage.getRGB(0, y, width, 1, row, 0, width);
+			final int runCount = runsOf(row, runs);
+			final int rowSize = runCount < 0 ? width : runCount * 2;
+			if (size + rowSize + 1 > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, size + rowSize + 1));
+			}
+			if (runCount < 0) {
+				data[size++] = LITERAL_ROW;
+				System.arraycopy(row, 0, data, size, width);
+			} else {
+				data[size++] = runCount;
+				System.arraycopy(runs, 0, data, size, rowSize);
+			}
+			size += rowSize;
+		}
+		return new CompressedImage(image, Arrays.copyOf(data, size));
+	}
+
+	/**
+	 * @return the number of runs or -1, when the runs take more space than the
+	 * plain pixels
+	 */
+	private static int runsOf(final int[] row, final int[] runs) {
+		int runCount = 0;
+		int x = 0;
+		while (x < row.length) {
+			final int color = row[x];
+			int end = x + 1;
+			while (end < row.length && row[end] == color) {
+				end++;
+			}
+			if ((runCount + 1) * 2 >= row.length) {
+				return LITERAL_ROW;
+			}
+			runs[runCount * 2] = end - x;
+			runs[runCount * 2 + 1] = color;
+			runCount++;
+			x = end;
+		}
+		return runCount;
+	}
+
+	/**
+	 * @return the number of bytes used to store the image
+	 */
+	long getSize() {
+		return data.length * 4L;
+	}
+
+	/**
+	 * @return a new image with the pixels of the compressed image
+	 */
+	ImageWithDimension restore() {
+		final BufferedImage image = new BufferedImage(pixelWidth, pixelHeight,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int i = 0;
+		int pixel = 0;
+		for (int y = 0; y < pixelHeight; y++) {
+			final int runCount = data[i++];
+			if (runCount == LITERAL_ROW) {
+				System.arraycopy(data, i, pixels, pixel, pixelWidth);
+				i += pixelWidth;
+				pixel += pixelWidth;
+			} else {
+				for (int run = 0; run < runCount; run++) {
+					final int length = data[i++];
+					final int color = data[i++];
+					Arrays.fill(pixels, pixel, pixel + length, color);
+					pixel += length;
+				}
+			}
+		}
+		return new ImageWithDimension(image, width, height);
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sizes the Diff pool of one comparison from the number of processors, the
+ * memory available for pages in flight and the size of the page rasters, and
+ * adjusts it while the comparison runs.
+ * <p>
+ * Rendering can't use more than one thread per document, because a PDDocument
+ * must not be rendered concurrently. So the pipeline keeps up, when enough
+ * pages are diffed in parallel to match the rate at which pages are rendered.
+ * The tuner keeps a moving average of the render and diff latencies, that it
+ * observes as a {@link MetricsListener}, and sets the number of Diff threads to
+ * their ratio. It doesn't add threads, while the {@link RenderAdmission} is
+ * close to its capacity. All measurements are passed on to the next listener.
+ */
+class ConcurrencyTuner implements MetricsListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyTuner.class);
+	private static final double SMOOTHING = 0.3;
+	private static final double MEMORY_HEADROOM = 0.1;
+
+	private final MetricsListener next;
+	private final int processors;
+	private final RenderAdmission admission;
+	private ThreadPoolExecutor diffExecutor;
+	private int maxDiffThreads = 1;
+	private int diffThreads = 1;
+	private double expectedRenderNanos = -1;
+	private double actualRenderNanos = -1;
+	private double diffNanos = -1;
+
+	ConcurrencyTuner(final MetricsListener next, final int processors, final RenderAdmission admission) {
+		this.next = next;
+		this.processors = processors;
+		this.admission = admission;
+	}
+
+	/**
+	 * @param processors the number of available processors
+	 * @return the number of threads, that render pages. One per document, unless
+	 * there is only one processor.
+	 */
+	static int renderThreads(final int processors) {
+		return processors > 1 ? 2 : 1;
+	}
+
+	/**
+	 * @param processors the number of available processors
+	 * @return the most Diff threads, that the processors can keep busy next to
+	 * rendering
+	 */
+	static int diffThreadsByProcessors(final int processors) {
+		return Math.max(1, processors - renderThreads(processors));
+	}
+
+	/**
+	 * Every page in flight holds its expected, actual and diff image. One page more
+	 * than is diffed has to fit, so rendering can go on.
+	 *
+	 * @param processors the number of available processors
+	 * @param capacityBytes the memory available for pages in flight
+	 * @param pageBytes the size of the raster of one page
+	 * @return the most Diff threads, that fit into processors and memory
+	 */
+	static int maxDiffThreads(final int processors, final long capacityBytes, final long pageBytes) {
+		final int byProcessors = diffThreadsByProcessors(processors);
+		if (pageBytes <= 0) {
+			return byProcessors;
+		}
+		final long byMemory = capacityBytes / (3 * pageBytes) - 1;
+		return (int) Math.max(1, Math.min(byProcessors, byMemory));
+	}
+
+	/**
+	 * @param renderNanos the time to render one page of both documents
+	 * @param diffNanos the time to diff one page
+	 * @param maxThreads the upper bound
+	 * @return the number of Diff threads, that diff pages as fast as they are
+	 * rendered
+	 */
+	static int targetDiffThreads(final double renderNanos, final double diffNanos, final int maxThreads) {
+		if (renderNanos <= 0 || diffNanos <= 0) {
+			return 1;
+		}
+		final int threads = (int) Math.ceil(diffNanos / renderNanos);
+		return Math.max(1, Math.min(maxThreads, threads));
+	}
+
+	/**
+	 * Starts to tune the given executor, once the size of the pages is known.
+	 *
+	 * @param executor the Diff executor, only a ThreadPoolExecutor is tuned
+	 * @param pageBytes the estimated size of the raster of a page
+	 */
+	synchronized void start(final ExecutorService executor, final long pageBytes) {
+		if (executor instanceof ThreadPoolExecutor) {
+			diffExecutor = (ThreadPoolExecutor) executor;
+			diffThreads = diffExecutor.getCorePoolSize();
+			maxDiffThreads = maxDiffThreads(processors, admission.getCapacityBytes(), pageBytes);
+			LOG.debug("Diffing with up to {} threads for pages of {} bytes", maxDiffThreads, pageBytes);
+		}
+	}
+
+	synchronized int getDiffThreads() {
+		return diffThreads;
+	}
+
+	@Override
+	public void stageFinished(final Stage stage, final int pageIndex, final long nanos) {
+		if (stage == Stage.RENDER_EXPECTED || stage == Stage.RENDER_ACTUAL || stage == Stage.DIFF) {
+			observe(stage, nanos);
+		}
+		next.stageFinished(stage, pageIndex, nanos);
+	}
+
+	private synchronized void observe(final Stage stage, final long nanos) {
+		if (stage == Stage.RENDER_EXPECTED) {
+			expectedRenderNanos = average(expectedRenderNanos, nanos);
+		} else if (stage == Stage.RENDER_ACTUAL) {
+			actualRenderNanos = average(actualRenderNanos, nanos);
+		} else {
+			diffNanos = average(diffNanos, nanos);
+			adjust();
+		}
+	}
+
+	private void adjust() {
+		if (diffExecutor == null || diffExecutor.isShutdown()) {
+			return;
+		}
+		final double renderNanos = renderThreads(processors) > 1 ? Math.max(expectedRenderNanos, actualRenderNanos)
+				: expectedRenderNanos + actualRenderNanos;
+		int target = targetDiffThreads(renderNanos, diffNanos, maxDiffThreads);
+		if (target > diffThreads && !hasMemoryHeadroom()) {
+			target = diffThreads;
+		}
+		if (target != diffThreads) {
+			LOG.debug("Changing Diff threads from {} to {}", diffThreads, target);
+			resize(diffExecutor, target);
+			diffThreads = target;
+		}
+	}
+
+	private boolean hasMemoryHeadroom() {
+		final long capacity = admission.getCapacityBytes();
+		return admission.getReservedBytes() < capacity - (long) (capacity * MEMORY_HEADROOM);
+	}
+
+	/**
+	 * The core size must never exceed the maximum size, so the order of the changes
+	 * depends on the direction.
+	 */
+	private static void resize(final ThreadPoolExecutor executor, final int threads) {
+		if (threads > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(threads);
+			executor.setCorePoolSize(threads);
+		} else {
+			executor.setCorePoolSize(threads);
+			executor.setMaximumPoolSize(threads);
+		}
+	}
+
+	private static double average(final double average, final long value) {
+		return average < 0 ? value : average + SMOOTHING * (value - average);
+	}
+
+	@Override
+	public void queueDepth(final String executor, final int depth) {
+		next.queueDepth(executor, depth);
+	}
+
+	@Override
+	public void blocked(final String executor, final long nanos) {
+		next.blocked(executor, nanos);
+	}
+
+	@Override
+	public void swapped(final long bytes) {
+		next.swapped(bytes);
+	}
+
+	@Override
+	public void cacheAccess(final String cache, final boolean hit) {
+		next.cacheAccess(cache, hit);
+	}
+}
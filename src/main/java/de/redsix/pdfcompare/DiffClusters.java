@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Groups the differing pixels of a page into separate areas in the same pass,
+ * that compares the pixels. Differing pixels are handed over as runs per row. A
+ * run extends the cluster nearby or starts a new one. Clusters, that get
+ * connected by a run, are joined by union-find. A cluster is nearby, when its
+ * bounding box is separated by at most mergeDistance pixels from the run. A
+ * mergeDistance of 0 joins touching pixels only. Clusters, that end too far
+ * above the current row, can't grow anymore and are not looked at again.
+ */
+class DiffClusters {
+
+	private final int reach;
+	private int[] parent = new int[16];
+	private int[] x1 = new int[16];
+	private int[] y1 = new int[16];
+	private int[] x2 = new int[16];
+	private int[] y2 = new int[16];
+	private int size;
+	private int[] active = new int[16];
+	private int activeSize;
+
+	DiffClusters(final int mergeDistance) {
+		this.reach = mergeDistance + 1;
+	}
+
+	/**
+	 * Adds a run of differing pixels. Runs have to be added row by row from top to
+	 * bottom.
+	 *
+	 * @param y the row of the run
+	 * @param runX1 the first differing pixel of the run
+	 * @param runX2 the last differing pixel of the run
+	 */
+	void addRun(final int y, final int runX1, final int runX2) {
+		int cluster = -1;
+		for (int i = activeSize - 1; i >= 0; i--) {
+			final int other = find(active[i]);
+			if (y - y2[other] > reach) {
+				active[i] = active[--activeSize];
+			} else if (other != cluster && isNear(other, runX1, y, runX2, y)) {
+				if (cluster < 0) {
+					cluster = other;
+				} else {
+					cluster = union(cluster, other);
+					active[i] = active[--activeSize];
+				}
+			}
+		}
+		if (cluster < 0) {
+			cluster = newCluster(runX1, y, runX2, y);
+			if (activeSize == active.length) {
+				active = Arrays.copyOf(active, activeSize * 2);
+			}
+			active[activeSize++] = cluster;
+		} else {
+			x1[cluster] = Math.min(x1[cluster], runX1);
+			x2[cluster] = Math.max(x2[cluster], runX2);
+			y2[cluster] = y;
+		}
+	}
+
+	/**
+	 * @param page the page number starting with 1
+	 * @return the bounding boxes of all clusters ordered from top to bottom and
+	 * left to right
+	 */
+	List<PageArea> getAreas(final int page) {
+		final List<Integer> roots = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			if (parent[i] == i) {
+				roots.add(i);
+			}
+		}
+		mergeNearRoots(roots);
+		Collections.sort(roots, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				if (y1[a] != y1[b]) {
+					return y1[a] < y1[b] ? -1 : 1;
+				}
+				return x1[a] < x1[b] ? -1 : x1[a] == x1[b] ? 0 : 1;
+			}
+		});
+		final List<PageArea> areas = new ArrayList<PageArea>(roots.size());
+		for (final int root : roots) {
+			areas.add(new PageArea(page, x1[root], y1[root], x2[root], y2[root]));
+		}
+		return areas;
+	}
+
+	/**
+	 * Merging grows bounding boxes, which may bring clusters into reach, that were
+	 * passed by already. Each cluster is compared to all others. When it absorbs
+	 * one, only the grown cluster is compared again, because the boxes of all
+	 * others are unchanged.
+	 */
+	private void mergeNearRoots(final List<Integer> roots) {
+		final int count = roots.size();
+		final int[] candidates = new int[count];
+		for (int i = 0; i < count; i++) {
+			candidates[i] = roots.get(i);
+		}
+		final boolean[] absorbed = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			if (absorbed[i]) {
+				continue;
+			}
+			boolean grown = true;
+			while (grown) {
+				grown = false;
+				for (int j = 0; j < count; j++) {
+					if (j != i && !absorbed[j]) {
+						final int other = candidates[j];
+						if (isNear(candidates[i], x1[other], y1[other], x2[other], y2[other])) {
+							candidates[i] = union(candidates[i], other);
+							absorbed[j] = true;
+							grown = true;
+						}
+					}
+				}
+			}
+		}
+		roots.clear();
+		for (int i = 0; i < count; i++) {
+			if (!absorbed[i]) {
+				roots.add(candidates[i]);
+			}
+		}
+	}
+
+	private boolean isNear(final int cluster, final int areaX1, final int areaY1, final int areaX2, final int areaY2) {
+		return areaX1 - reach <= x2[cluster] && areaX2 + reach >= x1[cluster] && areaY1 - reach <= y2[cluster]
+				&& areaY2 + reach >= y1[cluster];
+	}
+
+	private int newCluster(final int clusterX1, final int clusterY1, final int clusterX2, final int clusterY2) {
+		if (size == parent.length) {
+			final int capacity = size * 2;
+			parent = Arrays.copyOf(parent, capacity);
+			x1 = Arrays.copyOf(x1, capacity);
+			y1 = Arrays.copyOf(y1, capacity);
+			x2 = Arrays.copyOf(x2, capacity);
+			y2 = Arrays.copyOf(y2, capacity);
+		}
+		parent[size] = size;
+		x1[size] = clusterX1;
+		y1[size] = clusterY1;
+		x2[size] = clusterX2;
+		y2[size] = clusterY2;
+		return size++;
+	}
+
+	private int find(int cluster) {
+		while (parent[cluster] != cluster) {
+			parent[cluster] = parent[parent[cluster]];
+			cluster = parent[cluster];
+		}
+		return cluster;
+	}
+
+	private int union(final int a, final int b) {
+		final int root = Math.min(a, b);
+		final int child = Math.max(a, b);
+		parent[child] = root;
+		x1[root] = Math.min(x1[root], x1[child]);
+		y1[root] = Math.min(y1[root], y1[child]);
+		x2[root] = Math.max(x2[root], x2[child]);
+		y2[root] = Math.max(y2[root], y2[child]);
+		return root;
+	}
+}
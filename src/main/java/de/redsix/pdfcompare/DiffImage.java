@@ -46,6 +46,8 @@ public class DiffImage {
 	private int resultImageHeight;
 	private BufferedImage resultImage;
 	private int diffAreaX1, diffAreaY1, diffAreaX2, diffAreaY2;
+	private Color expectedColor;
+	private Color actualColor;
 	private final ResultCollector compareResult;
 	private PageDiffCalculator diffCalculator;
 
@@ -63,7 +65,20 @@ public class DiffImage {
 		return resultImage;
 	}
 
+	/**
+	 * @return the bytes of the expected, the actual and the result image, that this
+	 * DiffImage holds on to
+	 */
+	long getImageBytes() {
+		long bytes = RasterMemoryBudget.sizeOf(expectedImage) + RasterMemoryBudget.sizeOf(actualImage);
+		if (resultImage != null) {
+			bytes += RasterMemoryBudget.sizeOf(resultImage);
+		}
+		return bytes;
+	}
+
 	public void diffImages() {
+		final Object event = FlightRecorderEvents.beginDiff();
 		BufferedImage expectBuffImage = this.expectedImage.bufferedImage;
 		BufferedImage actualBuffImage = this.actualImage.bufferedImage;
 		expectedBuffer = expectBuffImage.getRaster().getDataBuffer();
@@ -82,11 +97,18 @@ public class DiffImage {
 		diffCalculator = new PageDiffCalculator(resultImageWidth * resultImageHeight,
 				environment.getAllowedDiffInPercent());
 
+		expectedColor = environment.getExpectedColor();
+		actualColor = environment.getActualColor();
 		int expectedElement;
 		int actualElement;
 		final PageExclusions pageExclusions = exclusions.forPage(page + 1);
+		final boolean collectMasks = environment.collectDifferenceMasks();
+		DifferenceMask differenceMask = null;
+		DifferenceMask differenceInExclusionMask = null;
+		final DiffClusters diffClusters = new DiffClusters(environment.getDiffAreaMergeDistance());
 
 		for (int y = 0; y < resultImageHeight; y++) {
+			int runStart = -1;
 			final int expectedLineOffset = y * expectedImageWidth;
 			final int actualLineOffset = y * actualImageWidth;
 			final int resultLineOffset = y * resultImageWidth;
@@ -94,27 +116,79 @@ public class DiffImage {
 				expectedElement = getExpectedElement(x, y, expectedLineOffset);
 				actualElement = getActualElement(x, y, actualLineOffset);
 				int element = getElement(expectedElement, actualElement);
-				if (pageExclusions.contains(x, y)) {
+				final boolean excluded = pageExclusions.contains(x, y);
+				if (runStart >= 0 && (excluded || expectedElement == actualElement)) {
+					diffClusters.addRun(y, runStart, x - 1);
+					runStart = -1;
+				}
+				if (excluded) {
 					element = ImageTools.fadeExclusion(element);
 					if (expectedElement != actualElement) {
 						diffCalculator.diffFoundInExclusion();
+						if (collectMasks) {
+							if (differenceInExclusionMask == null) {
+								differenceInExclusionMask = new DifferenceMask(resultImageWidth, resultImageHeight);
+							}
+							differenceInExclusionMask.set(x, y);
+						}
 					}
 				} else {
 					if (expectedElement != actualElement) {
 						extendDiffArea(x, y);
+						if (runStart < 0) {
+							runStart = x;
+						}
 						diffCalculator.diffFound();
-						LOG.trace("Difference found on page: {} at x: {}, y: {}", page + 1, x, y);
+						if (LOG.isTraceEnabled()) {
+							LOG.trace("Difference found on page: {} at x: {}, y: {}", page + 1, x, y);
+						}
 						mark(resultBuffer, x, y, resultImageWidth, MARKER_RGB);
+						if (collectMasks) {
+							if (differenceMask == null) {
+								differenceMask = new DifferenceMask(resultImageWidth, resultImageHeight);
+							}
+							differenceMask.set(x, y);
+						}
 					}
 				}
 				resultBuffer.setElem(x + resultLineOffset, element);
 			}
+			if (runStart >= 0) {
+				diffClusters.addRun(y, runStart, resultImageWidth - 1);
+			}
 		}
+		diffCalculator.addDifferenceMasks(differenceMask, differenceInExclusionMask);
 		if (diffCalculator.differencesFound()) {
 			diffCalculator.addDiffArea(new PageArea(page + 1, diffAreaX1, diffAreaY1, diffAreaX2, diffAreaY2));
+			diffCalculator.addDiffAreas(diffClusters.getAreas(page + 1));
 			LOG.info("Differences found at { page: {}, x1: {}, y1: {}, x2: {}, y2: {} }", page + 1, diffAreaX1,
 					diffAreaY1, diffAreaX2, diffAreaY2);
 		}
+		FlightRecorderEvents.endDiff(event, page, resultImageWidth, resultImageHeight, diffCalculator.getDiffsFound(),
+				diffCalculator.getDiffsFoundInExclusion());
+		addPageToResult();
+	}
+
+	/**
+	 * Takes over the outcome of an earlier comparison of pages, that are identical
+	 * to the pages of this DiffImage, instead of comparing pixel by pixel again.
+	 * The result image is shared with the earlier DiffImage.
+	 *
+	 * @param earlier a DiffImage, that was already diffed
+	 */
+	public void reuseDiffOf(final DiffImage earlier) {
+		resultImage = earlier.resultImage;
+		diffCalculator = earlier.diffCalculator.copyForPage(page);
+		LOG.trace("Reusing diff of page {} for identical page {}", earlier.page + 1, page + 1);
+		if (diffCalculator.differencesFound()) {
+			final PageArea diffArea = diffCalculator.getDiffArea();
+			LOG.info("Differences found at { page: {}, x1: {}, y1: {}, x2: {}, y2: {} }", page + 1, diffArea.getX1(),
+					diffArea.getY1(), diffArea.getX2(), diffArea.getY2());
+		}
+		addPageToResult();
+	}
+
+	private void addPageToResult() {
 		final float maxWidth = Math.max(expectedImage.width, actualImage.width);
 		final float maxHeight = Math.max(expectedImage.height, actualImage.height);
 		compareResult.addPage(diffCalculator, page, expectedImage, actualImage,
@@ -137,11 +211,11 @@ public class DiffImage {
 			int expectedIntensity = calcCombinedIntensity(expectedElement);
 			int actualIntensity = calcCombinedIntensity(actualElement);
 			if (expectedIntensity > actualIntensity) {
-				Color color = environment.getActualColor();
-				return color(levelIntensity(expectedIntensity, color.getRed()), color.getGreen(), color.getBlue());
+				return ImageTools.rgb(levelIntensity(expectedIntensity, actualColor.getRed()), actualColor.getGreen(),
+						actualColor.getBlue());
 			} else {
-				Color color = environment.getExpectedColor();
-				return color(color.getRed(), levelIntensity(actualIntensity, color.getGreen()), color.getBlue());
+				return ImageTools.rgb(expectedColor.getRed(), levelIntensity(actualIntensity, expectedColor.getGreen()),
+						expectedColor.getBlue());
 			}
 		} else {
 			return ImageTools.fadeElement(expectedElement);
@@ -181,8 +255,7 @@ public class DiffImage {
 	 * @return
 	 */
 	private static int calcCombinedIntensity(final int element) {
-		final Color color = new Color(element);
-		return Math.min(255, (color.getRed() + color.getGreen() + color.getRed()) / 3);
+		return Math.min(255, (ImageTools.red(element) + ImageTools.green(element) + ImageTools.red(element)) / 3);
 	}
 
 	private static void mark(final DataBuffer image, final int x, final int y, final int imageWidth,
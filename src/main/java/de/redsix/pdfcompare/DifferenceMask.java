@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+/**
+ * A bit per pixel of a page, that tells, whether the pixel differs between the
+ * expected and the actual page. Each row starts at a new long, so the set
+ * pixels of a row can be iterated as runs by skipping whole words.
+ */
+public class DifferenceMask {
+
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	private final long[] bits;
+
+	/**
+	 * Receives the runs of set pixels of a DifferenceMask.
+	 */
+	public interface RunConsumer {
+
+		/**
+		 * @param y the row of the run
+		 * @param x1 the first set pixel of the run
+		 * @param x2 the last set pixel of the run
+		 */
+		void accept(int y, int x1, int x2);
+	}
+
+	public DifferenceMask(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.bits = new long[wordsPerRow * height];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	void set(final int x, final int y) {
+		bits[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+	}
+
+	public boolean isSet(final int x, final int y) {
+		return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * @return the number of set pixels
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (final long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Hands all runs of set pixels row by row from left to right to the consumer.
+	 *
+	 * @param consumer receives the runs
+	 */
+	public void forEachRun(final RunConsumer consumer) {
+		for (int y = 0; y < height; y++) {
+			int x = nextSetBit(y, 0);
+			while (x >= 0) {
+				final int end = nextClearBit(y, x);
+				consumer.accept(y, x, end - 1);
+				x = end < width ? nextSetBit(y, end) : -1;
+			}
+		}
+	}
+
+	private int nextSetBit(final int y, final int from) {
+		final int rowOffset = y * wordsPerRow;
+		int word = from >>> 6;
+		long bitsLeft = bits[rowOffset + word] & (-1L << from);
+		while (bitsLeft == 0) {
+			if (++word == wordsPerRow) {
+				return -1;
+			}
+			bitsLeft = bits[rowOffset + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bitsLeft);
+	}
+
+	private int nextClearBit(final int y, final int from) {
+		final int rowOffset = y * wordsPerRow;
+		int word = from >>> 6;
+		long clearLeft = ~bits[rowOffset + word] & (-1L << from);
+		while (clearLeft == 0) {
+			if (++word == wordsPerRow) {
+				return width;
+			}
+			clearLeft = ~bits[rowOffset + word];
+		}
+		return Math.min(width, (word << 6) + Long.numberOfTrailingZeros(clearLeft));
+	}
+}
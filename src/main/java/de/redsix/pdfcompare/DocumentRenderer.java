@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * Renders the pages of one document. Pages, that are identical to an earlier
+ * page of the same document, are rendered only once and the image is reused for
+ * all duplicates. Images kept for later duplicates count against the
+ * {@link RenderAdmission} and are dropped, when pages in flight need the
+ * memory. The duplicates are rendered again then.
+ */
+public class DocumentRenderer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DocumentRenderer.class);
+	private static final int BYTES_PER_PIXEL = 4;
+	private final PDDocument document;
+	private final PDFRenderer pdfRenderer;
+	private final Environment environment;
+	private final PageFingerprints fingerprints;
+	private final MetricsListener metrics;
+	private final DuplicateCache<Integer, ImageWithDimension> images = new DuplicateCache<Integer, ImageWithDimension>(
+			RenderAdmission.global());
+
+	/**
+	 * @param document the document to render
+	 * @param numberOfPages the number of pages, that will be rendered through
+	 * {@link #render(int)}
+	 * @param environment the environment
+	 * @throws IOException when the document can't be read
+	 */
+	public DocumentRenderer(final PDDocument document, final int numberOfPages, final Environment environment)
+			throws IOException {
+		this(document, numberOfPages, environment, MetricsListener.NONE);
+	}
+
+	/**
+	 * @param document the document to render
+	 * @param numberOfPages the number of pages, that will be rendered through
+	 * {@link #render(int)}
+	 * @param environment the environment
+	 * @param metrics receives whether rendered pages could be reused
+	 * @throws IOException when the document can't be read
+	 */
+	public DocumentRenderer(final PDDocument document, final int numberOfPages, final Environment environment,
+			final MetricsListener metrics) throws IOException {
+		this.metrics = metrics;
+		this.document = document;
+		this.pdfRenderer = new PDFRenderer(document);
+		this.environment = environment;
+		this.fingerprints = environment.deduplicatePages() ? PageFingerprints.of(document, numberOfPages)
+				: PageFingerprints.unique(numberOfPages);
+		for (int i = 0; i < numberOfPages; i++) {
+			images.expect(fingerprints.canonicalPage(i));
+		}
+	}
+
+	/**
+	 * Renders a page or returns the image of an identical page rendered before.
+	 * Every page up to numberOfPages must be rendered exactly once. Returned images
+	 * may be shared between pages and must not be modified.
+	 *
+	 * @param pageIndex the page starting with 0
+	 * @return the rendered page
+	 * @throws IOException when the page can't be rendered
+	 */
+	public ImageWithDimension render(final int pageIndex) throws IOException {
+		final int canonicalPage = fingerprints.canonicalPage(pageIndex);
+		final ImageWithDimension image = images.take(canonicalPage);
+		metrics.cacheAccess("renderedPages", image != null);
+		if (image != null) {
+			LOG.trace("Reusing image of page {} for identical page {}", canonicalPage, pageIndex);
+			return image;
+		}
+		final ImageWithDimension rendered = PdfComparator.renderPageAsImage(document, pdfRenderer, pageIndex,
+				environment);
+		images.offer(canonicalPage, rendered, RasterMemoryBudget.sizeOf(rendered));
+		return rendered;
+	}
+
+	/**
+	 * Drops the images kept for duplicates, that were not rendered. Has to be
+	 * called, when not all pages are rendered.
+	 */
+	public void clearCache() {
+		images.clear();
+	}
+
+	/**
+	 * Renders a page without deduplication. The returned image may be modified.
+	 *
+	 * @param pageIndex the page starting with 0
+	 * @return the rendered page
+	 * @throws IOException when the page can't be rendered
+	 */
+	public ImageWithDimension renderUnshared(final int pageIndex) throws IOException {
+		return PdfComparator.renderPageAsImage(document, pdfRenderer, pageIndex, environment);
+	}
+
+	/**
+	 * Estimates the size of the image of a page from its crop box and the DPI,
+	 * without rendering it.
+	 *
+	 * @param pageIndex the page starting with 0
+	 * @return the estimated number of bytes of the rendered image
+	 */
+	public long estimateImageSize(final int pageIndex) {
+		final PDRectangle cropBox = document.getPage(pageIndex).getCropBox();
+		final float scale = environment.getDPI() / 72f;
+		final long width = Math.max((int) (cropBox.getWidth() * scale), 1);
+		final long height = Math.max((int) (cropBox.getHeight() * scale), 1);
+		return width * height * BYTES_PER_PIXEL;
+	}
+
+	/**
+	 * @param pageIndex the page starting with 0
+	 * @return the first page, that is identical to the given page.
+	 */
+	public int canonicalPage(final int pageIndex) {
+		return fingerprints.canonicalPage(pageIndex);
+	}
+
+	public PDDocument getDocument() {
+		return document;
+	}
+}
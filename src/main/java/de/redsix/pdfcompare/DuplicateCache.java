@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds on to values, that are needed more than once, for exactly as long as
+ * they are needed. Every use of a key has to be announced upfront through
+ * {@link #expect(Object)}. A value offered for a key is kept until the last
+ * announced use of that key has taken it.
+ *
+ * When the cache is bound to a {@link RenderAdmission}, every kept value
+ * reserves its bytes there. A value, that does not fit, is not kept, and kept
+ * values are evicted, when pages in flight need the memory. A later use of the
+ * key then finds no value and has to compute it again.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class DuplicateCache<K, V> implements RenderAdmission.Evictable {
+
+	private final Map<K, Integer> remainingUses = new HashMap<K, Integer>();
+	private final Map<K, Cached<V>> values = new LinkedHashMap<K, Cached<V>>();
+	private final RenderAdmission admission;
+
+	/**
+	 * Creates a cache, that keeps all offered values without limit.
+	 */
+	public DuplicateCache() {
+		this(null);
+	}
+
+	/**
+	 * @param admission where kept values reserve their bytes or null to keep values
+	 * without limit
+	 */
+	public DuplicateCache(final RenderAdmission admission) {
+		this.admission = admission;
+	}
+
+	/**
+	 * Announces one more use of the given key.
+	 *
+	 * @param key the key, that will be taken later
+	 */
+	public synchronized void expect(final K key) {
+		final Integer uses = remainingUses.get(key);
+		remainingUses.put(key, uses == null ? 1 : uses + 1);
+	}
+
+	/**
+	 * Consumes one announced use of the given key.
+	 *
+	 * @param key the key to take
+	 * @return the value offered earlier or null, when no value is available.
+	 */
+	public V take(final K key) {
+		final Cached<V> cached;
+		synchronized (this) {
+			final Integer uses = remainingUses.get(key);
+			if (uses == null || uses <= 1) {
+				remainingUses.remove(key);
+				cached = remove(key);
+			} else {
+				remainingUses.put(key, uses - 1);
+				return valueOf(values.get(key));
+			}
+		}
+		release(cached);
+		return valueOf(cached);
+	}
+
+	/**
+	 * Keeps the value for later uses of the key. When no more uses are announced,
+	 * the value is not kept.
+	 *
+	 * @param key the key
+	 * @param value the value to keep
+	 */
+	public void offer(final K key, final V value) {
+		offer(key, value, 0);
+	}
+
+	/**
+	 * Keeps the value for later uses of the key. When no more uses are announced or
+	 * the value does not fit into the RenderAdmission, the value is not kept.
+	 *
+	 * @param key the key
+	 * @param value the value to keep
+	 * @param bytes the memory held by the value
+	 */
+	public void offer(final K key, final V value, final long bytes) {
+		synchronized (this) {
+			if (!remainingUses.containsKey(key) || values.containsKey(key)) {
+				return;
+			}
+		}
+		RenderAdmission.Reservation reservation = null;
+		if (admission != null) {
+			reservation = admission.tryReserve(bytes);
+			if (reservation == null) {
+				return;
+			}
+		}
+		synchronized (this) {
+			if (remainingUses.containsKey(key) && !values.containsKey(key)) {
+				if (values.isEmpty() && admission != null) {
+					admission.register(this);
+				}
+				values.put(key, new Cached<V>(value, reservation));
+				return;
+			}
+		}
+		if (reservation != null) {
+			reservation.release();
+		}
+	}
+
+	/**
+	 * Drops values in the order they were offered, until the given number of bytes
+	 * is released.
+	 */
+	@Override
+	public long evict(final long bytes) {
+		final List<Cached<V>> evicted = new ArrayList<Cached<V>>();
+		long evictedBytes = 0;
+		synchronized (this) {
+			final Iterator<Cached<V>> iterator = values.values().iterator();
+			while (evictedBytes < bytes && iterator.hasNext()) {
+				final Cached<V> cached = iterator.next();
+				iterator.remove();
+				evicted.add(cached);
+				evictedBytes += cached.getBytes();
+			}
+			unregisterWhenEmpty();
+		}
+		for (final Cached<V> cached : evicted) {
+			release(cached);
+		}
+		return evictedBytes;
+	}
+
+	/**
+	 * Drops all values and announced uses and releases their reservations.
+	 */
+	public void clear() {
+		final List<Cached<V>> dropped;
+		synchronized (this) {
+			dropped = new ArrayList<Cached<V>>(values.values());
+			values.clear();
+			remainingUses.clear();
+			unregisterWhenEmpty();
+		}
+		for (final Cached<V> cached : dropped) {
+			release(cached);
+		}
+	}
+
+	/**
+	 * @return the number of values currently held.
+	 */
+	public synchronized int size() {
+		return values.size();
+	}
+
+	private Cached<V> remove(final K key) {
+		final Cached<V> cached = values.remove(key);
+		unregisterWhenEmpty();
+		return cached;
+	}
+
+	private void unregisterWhenEmpty() {
+		if (values.isEmpty() && admission != null) {
+			admission.unregister(this);
+		}
+	}
+
+	private static <V> V valueOf(final Cached<V> cached) {
+		return cached == null ? null : cached.value;
+	}
+
+	private static void release(final Cached<?> cached) {
+		if (cached != null && cached.reservation != null) {
+			cached.reservation.release();
+		}
+	}
+
+	private static class Cached<V> {
+
+		private final V value;
+		private final RenderAdmission.Reservation reservation;
+
+		private Cached(final V value, final RenderAdmission.Reservation reservation) {
+			this.value = value;
+			this.reservation = reservation;
+		}
+
+		private long getBytes() {
+			return reservation == null ? 0 : reservation.getBytes();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+/**
+ * Hooks for Java Flight Recorder events around the expensive steps of a
+ * comparison: rendering, diffing, swapping and writing the result.
+ * <p>
+ * This is the baseline implementation, which does nothing, so that the library
+ * keeps running on JDK 6. On Java 11 and newer the multi-release jar provides
+ * an implementation from {@code META-INF/versions/11}, that emits
+ * {@code jdk.jfr} events. Both implementations must keep the same signatures.
+ * <p>
+ * A {@code begin} method returns a handle, that is passed on to the matching
+ * {@code end} method. The handle is {@code null}, when the event is not
+ * recorded.
+ */
+final class FlightRecorderEvents {
+
+	private FlightRecorderEvents() {
+	}
+
+	static Object beginRender() {
+		return null;
+	}
+
+	static void endRender(final Object event, final int pageIndex, final int width, final int height, final int dpi) {
+	}
+
+	static Object beginDiff() {
+		return null;
+	}
+
+	static void endDiff(final Object event, final int pageIndex, final int width, final int height,
+			final int diffsFound, final int diffsFoundInExclusion) {
+	}
+
+	static Object beginSwap() {
+		return null;
+	}
+
+	static void endSwap(final Object event, final int pages, final long bytes) {
+	}
+
+	static Object beginWrite() {
+		return null;
+	}
+
+	static void endWrite(final Object event, final int pages, final long bytesWritten) {
+	}
+}
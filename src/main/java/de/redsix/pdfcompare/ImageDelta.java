@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Stores an image as the difference to a reference image of the same size. The
+ * pixels of both images are XORed, so equal pixels become 0, and the result is
+ * run-length encoded as alternating runs of equal pixels and literal XOR
+ * values. For nearly identical images only a few ints remain. An image, that is
+ * identical to its reference, is not stored at all and restored as a copy of
+ * the reference. When the delta would be bigger than the raster of the image,
+ * no delta is created and the image should be kept as it is.
+ */
+class ImageDelta {
+
+	private static final int[] NO_DIFFERENCES = new int[0];
+	private final int width;
+	private final int height;
+	private final boolean alpha;
+	private final int[] runs;
+
+	private ImageDelta(final BufferedImage image, final int[] runs) {
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.alpha = image.getColorModel().hasAlpha();
+		this.runs = runs;
+	}
+
+	/**
+	 * @param reference the image to compare against
+	 * @param image the image to store
+	 * @return the delta or null, when the images differ in size or color model or
+	 * when the delta would not be smaller than the image
+	 */
+	static ImageDelta of(final BufferedImage reference, final BufferedImage image) {
+		if (reference.getWidth() != image.getWidth() || reference.getHeight() != image.getHeight()
+				|| reference.getColorModel().hasAlpha() != image.getColorModel().hasAlpha()) {
+			return null;
+		}
+		final int width = image.getWidth();
+		final long rasterBytes = RasterMemoryBudget.sizeOf(image);
+		final int[] referenceRow = new int[width];
+		final int[] row = new int[width];
+		final RunWriter writer = new RunWriter();
+		for (int y = 0; y < image.getHeight(); y++) {
+			reference.getRGB(0, y, width, 1, referenceRow, 0, width);
+			image.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++) {
+				writer.add(referenceRow[x] ^ row[x]);
+			}
+			if (writer.size * 4L >= rasterBytes) {
+				return null;
+			}
+		}
+		return new ImageDelta(image, writer.finish());
+	}
+
+	/**
+	 * @return true, when the image is identical to its reference
+	 */
+	boolean isIdentical() {
+		return runs.length == 0;
+	}
+
+	/**
+	 * @return the number of bytes used to store the delta
+	 */
+	long getSize() {
+		return runs.length * 4L;
+	}
+
+	/**
+	 * Restores the image from its reference.
+	 *
+	 * @param reference the same reference image, the delta was created with
+	 * @return a new image
+	 */
+	BufferedImage restore(final BufferedImage reference) {
+		final BufferedImage image = new BufferedImage(width, height,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		reference.getRGB(0, 0, width, height, pixels, 0, width);
+		int pixel = 0;
+		int i = 0;
+		while (i < runs.length) {
+			pixel += runs[i++];
+			final int literals = runs[i++];
+			for (int end = i + literals; i < end; i++) {
+				pixels[pixel++] ^= runs[i];
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Collects the run-length encoding as pairs of an equal run length and a
+	 * literal count, followed by the literal XOR values. Trailing equal pixels are
+	 * left out.
+	 */
+	private static class RunWriter {
+
+		private int[] runs = new int[64];
+		private int size;
+		private int equalRun;
+		private int literalCountIndex = -1;
+
+		private void add(final int xor) {
+			if (xor == 0) {
+				equalRun++;
+				literalCountIndex = -1;
+				return;
+			}
+			if (literalCountIndex < 0) {
+				ensureCapacity(2);
+				runs[size++] = equalRun;
+				literalCountIndex = size;
+				runs[size++] = 0;
+				equalRun = 0;
+			}
+			ensureCapacity(1);
+			runs[size++] = xor;
+			runs[literalCountIndex]++;
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (size + additional > runs.length) {
+				runs = Arrays.copyOf(runs, runs.length * 2);
+			}
+		}
+
+		private int[] finish() {
+			return size == 0 ? NO_DIFFERENCES : Arrays.copyOf(runs, size);
+		}
+	}
+}
@@ -31,18 +31,40 @@ public class ImageTools {
 	}
 
 	public static int fadeElement(final int i) {
-		final Color color = new Color(i);
-		return new Color(fade(color.getRed()), fade(color.getGreen()), fade(color.getBlue())).getRGB();
+		return rgb(fade(red(i)), fade(green(i)), fade(blue(i)));
 	}
 
 	public static int fadeExclusion(final int i) {
-		final Color color = new Color(i);
-		if (color.getRed() > 245 && color.getGreen() > 245 && color.getBlue() > 245) {
+		if (red(i) > 245 && green(i) > 245 && blue(i) > 245) {
 			return EXCLUDED_BACKGROUND_RGB;
 		}
 		return fadeElement(i);
 	}
 
+	/*
+	 * The following work on the int values of pixels directly, like Color does, but
+	 * without creating a Color for every pixel.
+	 */
+
+	static int red(final int rgb) {
+		return (rgb >> 16) & 0xFF;
+	}
+
+	static int green(final int rgb) {
+		return (rgb >> 8) & 0xFF;
+	}
+
+	static int blue(final int rgb) {
+		return rgb & 0xFF;
+	}
+
+	/**
+	 * Same as new Color(r, g, b).getRGB() for components between 0 and 255.
+	 */
+	static int rgb(final int r, final int g, final int b) {
+		return 0xFF000000 | r << 16 | g << 8 | b;
+	}
+
 	private static int fade(final int i) {
 		return i + ((255 - i) * 3 / 5);
 	}
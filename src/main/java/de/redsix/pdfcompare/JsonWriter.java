@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Writes JSON to a Writer one token at a time. Separators and indentation are
+ * added automatically and all strings are escaped, so names and values can be
+ * taken from file names or other input as they are. Objects and arrays nested
+ * deeper than two levels are written on a single line, so every element of a
+ * top level array takes one line.
+ */
+class JsonWriter implements Closeable {
+
+	private static final String INDENT = "  ";
+	private static final int INDENTED_DEPTH = 2;
+	private final Writer writer;
+	private final BitSet hasElements = new BitSet();
+	private int depth;
+	private boolean afterName;
+
+	JsonWriter(final Writer writer) {
+		this.writer = writer;
+	}
+
+	JsonWriter beginObject() throws IOException {
+		return open('{');
+	}
+
+	JsonWriter endObject() throws IOException {
+		return close('}');
+	}
+
+	JsonWriter beginArray() throws IOException {
+		return open('[');
+	}
+
+	JsonWriter endArray() throws IOException {
+		return close(']');
+	}
+
+	JsonWriter name(final String name) throws IOException {
+		beforeValue();
+		string(name);
+		writer.write(": ");
+		afterName = true;
+		return this;
+	}
+
+	JsonWriter value(final String value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		beforeValue();
+		string(value);
+		return this;
+	}
+
+	JsonWriter value(final long value) throws IOException {
+		beforeValue();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	JsonWriter value(final boolean value) throws IOException {
+		beforeValue();
+		writer.write(Boolean.toString(value));
+		return this;
+	}
+
+	JsonWriter nullValue() throws IOException {
+		beforeValue();
+		writer.write("null");
+		return this;
+	}
+
+	private JsonWriter open(final char bracket) throws IOException {
+		beforeValue();
+		writer.write(bracket);
+		depth++;
+		hasElements.clear(depth);
+		return this;
+	}
+
+	private JsonWriter close(final char bracket) throws IOException {
+		if (depth == 0) {
+			throw new IllegalStateException("Nothing to close");
+		}
+		final boolean empty = !hasElements.get(depth);
+		final boolean inline = depth > INDENTED_DEPTH;
+		depth--;
+		if (!empty) {
+			if (inline) {
+				writer.write(' ');
+			} else {
+				newLine();
+			}
+		}
+		writer.write(bracket);
+		if (depth == 0) {
+			writer.write('\n');
+		}
+		return this;
+	}
+
+	/**
+	 * A value following a name is written on the same line. Every other value is
+	 * separated from the previous element by a comma and starts a new line, unless
+	 * its container is written on a single line.
+	 */
+	private void beforeValue() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (depth > 0) {
+			if (hasElements.get(depth)) {
+				writer.write(',');
+			}
+			hasElements.set(depth);
+			if (depth > INDENTED_DEPTH) {
+				writer.write(' ');
+			} else {
+				newLine();
+			}
+		}
+	}
+
+	private void newLine() throws IOException {
+		writer.write('\n');
+		for (int i = 0; i < depth; i++) {
+			writer.write(INDENT);
+		}
+	}
+
+	private void string(final String s) throws IOException {
+		writer.write('"');
+		writer.write(StringEscapeUtils.escapeJson(s));
+		writer.write('"');
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+/**
+ * Receives measurements of the comparison pipeline. Register it with
+ * {@link PdfComparator#withMetrics(MetricsListener)}. {@link PipelineMetrics}
+ * aggregates the measurements and exposes them through JMX.
+ *
+ * Methods are called from all the threads of the pipeline, often once per page,
+ * so implementations must be thread safe and should return quickly.
+ */
+public interface MetricsListener {
+
+	enum Stage {
+		LOAD_EXPECTED, LOAD_ACTUAL, RENDER_EXPECTED, RENDER_ACTUAL, DIFF, SWAP, MERGE, WRITE
+	}
+
+	/**
+	 * A listener, that ignores all measurements.
+	 */
+	MetricsListener NONE = new MetricsListener() {
+
+		@Override
+		public void stageFinished(final Stage stage, final int pageIndex, final long nanos) {
+		}
+
+		@Override
+		public void queueDepth(final String executor, final int depth) {
+		}
+
+		@Override
+		public void blocked(final String executor, final long nanos) {
+		}
+
+		@Override
+		public void swapped(final long bytes) {
+		}
+
+		@Override
+		public void cacheAccess(final String cache, final boolean hit) {
+		}
+	};
+
+	/**
+	 * @param stage the stage, that finished
+	 * @param pageIndex the page starting with 0 or -1 for stages, that work on the
+	 * whole document
+	 * @param nanos the duration of the stage
+	 */
+	void stageFinished(Stage stage, int pageIndex, long nanos);
+
+	/**
+	 * @param executor the name of the executor, e.g. Draw, ParallelDraw, Diff or
+	 * Swap
+	 * @param depth the number of tasks waiting in its queue, right after a task was
+	 * added
+	 */
+	void queueDepth(String executor, int depth);
+
+	/**
+	 * @param executor the name of the executor, whose queue was full
+	 * @param nanos the time the submitting thread was blocked
+	 */
+	void blocked(String executor, long nanos);
+
+	/**
+	 * @param bytes the size of the images, that were swapped out of the heap
+	 */
+	void swapped(long bytes);
+
+	/**
+	 * @param cache the name of the cache, renderedPages, diffs or xobjects
+	 * @param hit true, when the cache could deliver
+	 */
+	void cacheAccess(String cache, boolean hit);
+}
@@ -16,6 +16,10 @@
  */
 package de.redsix.pdfcompare;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.commons.lang3.ObjectUtils;
 
 public class PageDiffCalculator {
@@ -25,6 +29,9 @@ public class PageDiffCalculator {
 	private int diffsFound = 0;
 	private int diffsFoundInExclusion = 0;
 	private PageArea diffArea;
+	private List<PageArea> diffAreas = Collections.emptyList();
+	private DifferenceMask differenceMask;
+	private DifferenceMask differenceInExclusionMask;
 
 	public PageDiffCalculator(final int totalPixels, final double allowedDiffInPercent) {
 		this.totalPixels = totalPixels;
@@ -57,6 +64,14 @@ public class PageDiffCalculator {
 		return diffsFoundInExclusion > 0;
 	}
 
+	public int getDiffsFound() {
+		return diffsFound;
+	}
+
+	public int getDiffsFoundInExclusion() {
+		return diffsFoundInExclusion;
+	}
+
 	@Override
 	public boolean equals(final Object o) {
 		if (this == o) {
@@ -82,4 +97,62 @@ public class PageDiffCalculator {
 	public PageArea getDiffArea() {
 		return diffArea;
 	}
+
+	public void addDiffAreas(final List<PageArea> diffAreas) {
+		this.diffAreas = diffAreas;
+	}
+
+	/**
+	 * @return the separate areas of differences on this page, which all lie within
+	 * {@link #getDiffArea()}
+	 */
+	public List<PageArea> getDiffAreas() {
+		return diffAreas;
+	}
+
+	public void addDifferenceMasks(final DifferenceMask differenceMask,
+			final DifferenceMask differenceInExclusionMask) {
+		this.differenceMask = differenceMask;
+		this.differenceInExclusionMask = differenceInExclusionMask;
+	}
+
+	/**
+	 * @return the pixels, that differ outside of exclusions, or null, when no pixel
+	 * differs or masks are not collected
+	 */
+	public DifferenceMask getDifferenceMask() {
+		return differenceMask;
+	}
+
+	/**
+	 * @return the pixels, that differ inside of exclusions, or null, when no pixel
+	 * differs there or masks are not collected
+	 */
+	public DifferenceMask getDifferenceInExclusionMask() {
+		return differenceInExclusionMask;
+	}
+
+	/**
+	 * Copies the outcome of this page to another page, that is known to compare
+	 * exactly the same.
+	 *
+	 * @param page the other page starting with 0
+	 * @return a calculator with the same differences, located on the other page
+	 */
+	public PageDiffCalculator copyForPage(final int page) {
+		final PageDiffCalculator copy = new PageDiffCalculator(totalPixels, allowedDiffInPercent);
+		copy.diffsFound = diffsFound;
+		copy.diffsFoundInExclusion = diffsFoundInExclusion;
+		copy.differenceMask = differenceMask;
+		copy.differenceInExclusionMask = differenceInExclusionMask;
+		if (diffArea != null) {
+			copy.diffArea = new PageArea(page + 1, diffArea.getX1(), diffArea.getY1(), diffArea.getX2(),
+					diffArea.getY2());
+		}
+		copy.diffAreas = new ArrayList<PageArea>(diffAreas.size());
+		for (final PageArea area : diffAreas) {
+			copy.diffAreas.add(new PageArea(page + 1, area.getX1(), area.getY1(), area.getX2(), area.getY2()));
+		}
+		return copy;
+	}
 }
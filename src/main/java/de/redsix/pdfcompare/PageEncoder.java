@@ -0,0 +1,497 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import lombok.Cleanup;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.filter.Filter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDPageLabelRange;
+import org.apache.pdfbox.pdmodel.common.PDPageLabels;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * Adds result images as pages to a PDDocument. The Flate compression of the
+ * images is done concurrently, while the pages are added to the document in
+ * order.
+ *
+ * Depending on the Environment, images are cropped to the area with
+ * differences, scaled down to the output DPI and stored with an indexed color
+ * palette. When only differences are written, an index of the compared page
+ * numbers is added.
+ */
+class PageEncoder extends PageSink<PageEncoder.EncodedImage> {
+
+	private static final int MAX_PALETTE_SIZE = 256;
+	private final PDDocument document;
+	private final double scale;
+	private final boolean palette;
+	private final boolean crop;
+	private final boolean index;
+	private final boolean deduplicate;
+	private final int cropMargin;
+	private final List<Integer> writtenPages = new ArrayList<Integer>();
+	private final ConcurrentMap<ByteBuffer, FutureTask<EncodedImage>> encodings = new ConcurrentHashMap<ByteBuffer, FutureTask<EncodedImage>>();
+	private final ConcurrentMap<ByteBuffer, PDImageXObject> writtenImages = new ConcurrentHashMap<ByteBuffer, PDImageXObject>();
+
+	PageEncoder(final PDDocument document, final Environment environment) {
+		super(environment);
+		this.document = document;
+		final int dpi = environment.getDPI();
+		this.scale = Math.min(1.0, (double) environment.getOutputDPI() / dpi);
+		this.palette = environment.useOutputPalette();
+		this.crop = environment.cropOutputToDifferences();
+		this.index = environment.writeDifferencesOnly();
+		this.deduplicate = environment.deduplicateOutputImages();
+		this.cropMargin = dpi / 4;
+	}
+
+	@Override
+	protected EncodedImage encode(final int pageIndex, final ImageWithDimension image, final PageArea diffArea)
+			throws IOException {
+		return encode(image, diffArea);
+	}
+
+	@Override
+	protected void write(final int pageIndex, final EncodedImage encoded) throws IOException {
+		addPage(encoded);
+		writtenPages.add(pageIndex);
+	}
+
+	/**
+	 * When only differences are written, the pages are labeled with the numbers of
+	 * the compared pages and a bookmark is added for each of them.
+	 */
+	@Override
+	protected void finished() throws IOException {
+		if (index && !writtenPages.isEmpty()) {
+			addIndex();
+		}
+	}
+
+	private void addIndex() throws IOException {
+		final PDPageLabels labels = new PDPageLabels(document);
+		final PDDocumentOutline outline = new PDDocumentOutline();
+		for (int i = 0; i < writtenPages.size(); i++) {
+			final int pageNumber = writtenPages.get(i) + 1;
+			final PDPageLabelRange range = new PDPageLabelRange();
+			range.setStyle(PDPageLabelRange.STYLE_DECIMAL);
+			range.setStart(pageNumber);
+			labels.setLabelItem(i, range);
+			final PDOutlineItem item = new PDOutlineItem();
+			item.setTitle("Page " + pageNumber);
+			item.setDestination(document.getPage(i));
+			outline.addLast(item);
+		}
+		document.getDocumentCatalog().setPageLabels(labels);
+		document.getDocumentCatalog().setDocumentOutline(outline);
+	}
+
+	/**
+	 * Encodes an image with the settings of this PageEncoder. Images, that
+	 * LosslessFactory would store with a grayscale color space or a soft mask, are
+	 * left to it, when the page is added.
+	 *
+	 * When output images are deduplicated, the pixels of every image are hashed
+	 * first. An image with the same pixels as an earlier one is not encoded again,
+	 * but refers to the earlier image, so both pages share one image in the result.
+	 * Only encodings, that are not written yet, are kept. Once written, just the
+	 * image in the document is remembered for later duplicates.
+	 *
+	 * @param image the image to encode
+	 * @param diffArea the area with differences on the page or null
+	 * @return the encoded image
+	 * @throws IOException when the image can't be compressed
+	 */
+	EncodedImage encode(final ImageWithDimension image, final PageArea diffArea) throws IOException {
+		BufferedImage bufferedImage = image.bufferedImage;
+		float width = image.width;
+		float height = image.height;
+		if (crop && diffArea != null && diffArea.getX1() >= 0) {
+			final int x1 = Math.max(0, diffArea.getX1() - cropMargin);
+			final int y1 = Math.max(0, diffArea.getY1() - cropMargin);
+			final int x2 = Math.min(bufferedImage.getWidth() - 1, diffArea.getX2() + cropMargin);
+			final int y2 = Math.min(bufferedImage.getHeight() - 1, diffArea.getY2() + cropMargin);
+			if (x1 <= x2 && y1 <= y2) {
+				width = width * (x2 - x1 + 1) / bufferedImage.getWidth();
+				height = height * (y2 - y1 + 1) / bufferedImage.getHeight();
+				bufferedImage = bufferedImage.getSubimage(x1, y1, x2 - x1 + 1, y2 - y1 + 1);
+			}
+		}
+		if (scale < 1.0) {
+			bufferedImage = scaled(bufferedImage);
+		}
+		final int type = bufferedImage.getType();
+		if (bufferedImage.getColorModel().hasAlpha() || type == BufferedImage.TYPE_BYTE_GRAY
+				|| type == BufferedImage.TYPE_BYTE_BINARY) {
+			return new EncodedImage(bufferedImage, null, null, 8, width, height);
+		}
+		if (!deduplicate) {
+			return encodePixels(bufferedImage, width, height);
+		}
+		final BufferedImage pixels = bufferedImage;
+		final float pageWidth = width;
+		final float pageHeight = height;
+		final FutureTask<EncodedImage> encoding = new FutureTask<EncodedImage>(new Callable<EncodedImage>() {
+			@Override
+			public EncodedImage call() throws Exception {
+				return encodePixels(pixels, pageWidth, pageHeight);
+			}
+		});
+		final ByteBuffer digest = digestOf(bufferedImage);
+		final FutureTask<EncodedImage> earlier = encodings.putIfAbsent(digest, encoding);
+		if (earlier != null) {
+			return new EncodedImage(get(earlier), width, height);
+		}
+		final PDImageXObject written = writtenImages.get(digest);
+		if (written != null) {
+			encodings.remove(digest, encoding);
+			return new EncodedImage(written, bufferedImage, width, height);
+		}
+		encoding.run();
+		final EncodedImage encoded = get(encoding);
+		encoded.digest = digest;
+		return encoded;
+	}
+
+	/**
+	 * @return the number of encodings, that are kept to be shared, because their
+	 * image is not written yet
+	 */
+	int getPendingEncodings() {
+		return encodings.size();
+	}
+
+	private EncodedImage encodePixels(final BufferedImage image, final float width, final float height)
+			throws IOException {
+		if (palette) {
+			return encodeIndexed(image, width, height);
+		}
+		return encodeRgb(image, width, height);
+	}
+
+	private static ByteBuffer digestOf(final BufferedImage image) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		final int width = image.getWidth();
+		final int[] rgbRow = new int[width];
+		final ByteBuffer row = ByteBuffer.allocate(width * 4);
+		row.putInt(width).putInt(image.getHeight());
+		digest.update(row.array(), 0, 8);
+		for (int y = 0; y < image.getHeight(); y++) {
+			image.getRGB(0, y, width, 1, rgbRow, 0, width);
+			row.clear();
+			row.asIntBuffer().put(rgbRow);
+			digest.update(row.array());
+		}
+		return ByteBuffer.wrap(digest.digest());
+	}
+
+	private BufferedImage scaled(final BufferedImage image) {
+		final int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		final int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+		final BufferedImage scaled = new BufferedImage(width, height,
+				image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		final Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+
+	/**
+	 * Compresses an image as 8 bit RGB, the same way {@link LosslessFactory} does.
+	 */
+	private static EncodedImage encodeRgb(final BufferedImage image, final float width, final float height)
+			throws IOException {
+		final int pixelWidth = image.getWidth();
+		final int[] rgbRow = new int[pixelWidth];
+		final byte[] row = new byte[pixelWidth * 3];
+		final Compressor compressor = new Compressor(pixelWidth * image.getHeight());
+		try {
+			for (int y = 0; y < image.getHeight(); y++) {
+				image.getRGB(0, y, pixelWidth, 1, rgbRow, 0, pixelWidth);
+				for (int x = 0, i = 0; x < pixelWidth; x++) {
+					final int rgb = rgbRow[x];
+					row[i++] = (byte) (rgb >> 16);
+					row[i++] = (byte) (rgb >> 8);
+					row[i++] = (byte) rgb;
+				}
+				compressor.write(row);
+			}
+			return new EncodedImage(image, compressor.finish(), PDDeviceRGB.INSTANCE, 8, width, height);
+		} finally {
+			compressor.end();
+		}
+	}
+
+	/**
+	 * Compresses an image with an indexed color palette of at most 256 colors. When
+	 * the image has more colors, the lower bits of every color component are
+	 * dropped, until the remaining colors fit into the palette.
+	 */
+	private static EncodedImage encodeIndexed(final BufferedImage image, final float width, final float height)
+			throws IOException {
+		final int pixelWidth = image.getWidth();
+		final int pixelHeight = image.getHeight();
+		final int[] rgbRow = new int[pixelWidth];
+		Map<Integer, Integer> colors = null;
+		int shift = 0;
+		while (colors == null) {
+			colors = paletteOf(image, rgbRow, shift);
+			if (colors == null) {
+				shift++;
+			}
+		}
+		final int bitsPerComponent = colors.size() <= 2 ? 1 : colors.size() <= 4 ? 2 : colors.size() <= 16 ? 4 : 8;
+		final int mask = quantizationMask(shift);
+		final byte[] row = new byte[(pixelWidth * bitsPerComponent + 7) / 8];
+		final Compressor compressor = new Compressor(row.length * pixelHeight);
+		try {
+			for (int y = 0; y < pixelHeight; y++) {
+				image.getRGB(0, y, pixelWidth, 1, rgbRow, 0, pixelWidth);
+				Arrays.fill(row, (byte) 0);
+				int lastColor = 0;
+				int lastIndex = -1;
+				for (int x = 0; x < pixelWidth; x++) {
+					final int color = rgbRow[x] & mask;
+					if (lastIndex < 0 || color != lastColor) {
+						lastColor = color;
+						lastIndex = colors.get(color);
+					}
+					final int bit = x * bitsPerComponent;
+					row[bit >> 3] |= lastIndex << (8 - bitsPerComponent - (bit & 7));
+				}
+				compressor.write(row);
+			}
+			return new EncodedImage(image, compressor.finish(), indexedColorSpace(colors, shift), bitsPerComponent,
+					width, height);
+		} finally {
+			compressor.end();
+		}
+	}
+
+	/**
+	 * Collects the colors of the image after dropping the given number of lower
+	 * bits of every color component.
+	 *
+	 * @return the palette index of every color or null, when there are more than
+	 * 256 colors
+	 */
+	private static Map<Integer, Integer> paletteOf(final BufferedImage image, final int[] rgbRow, final int shift) {
+		final int mask = quantizationMask(shift);
+		final Map<Integer, Integer> colors = new LinkedHashMap<Integer, Integer>();
+		final int pixelWidth = image.getWidth();
+		int lastColor = 0;
+		for (int y = 0; y < image.getHeight(); y++) {
+			image.getRGB(0, y, pixelWidth, 1, rgbRow, 0, pixelWidth);
+			for (int x = 0; x < pixelWidth; x++) {
+				final int color = rgbRow[x] & mask;
+				if ((color != lastColor || colors.isEmpty()) && !colors.containsKey(color)) {
+					if (colors.size() == MAX_PALETTE_SIZE) {
+						return null;
+					}
+					colors.put(color, colors.size());
+				}
+				lastColor = color;
+			}
+		}
+		return colors;
+	}
+
+	private static int quantizationMask(final int shift) {
+		final int component = (0xFF << shift) & 0xFF;
+		return component << 16 | component << 8 | component;
+	}
+
+	private static PDIndexed indexedColorSpace(final Map<Integer, Integer> colors, final int shift) throws IOException {
+		final int half = shift == 0 ? 0 : 1 << (shift - 1);
+		final byte[] lookup = new byte[colors.size() * 3];
+		int i = 0;
+		for (final int color : colors.keySet()) {
+			lookup[i++] = (byte) (((color >> 16) & 0xFF) + half);
+			lookup[i++] = (byte) (((color >> 8) & 0xFF) + half);
+			lookup[i++] = (byte) ((color & 0xFF) + half);
+		}
+		final COSArray array = new COSArray();
+		array.add(COSName.INDEXED);
+		array.add(COSName.DEVICERGB);
+		array.add(COSInteger.get(colors.size() - 1));
+		array.add(new COSString(lookup));
+		return new PDIndexed(array);
+	}
+
+	/**
+	 * Adds a page showing the encoded image to the document. Images, that are
+	 * shared by several pages, are added to the document only once. Afterwards the
+	 * encoded data is dropped.
+	 *
+	 * @param encoded the image for the page
+	 * @throws IOException when the page can't be added
+	 */
+	void addPage(final EncodedImage encoded) throws IOException {
+		final EncodedImage image = encoded.sameAs != null ? encoded.sameAs : encoded;
+		if (image.imageXObject == null) {
+			if (image.bufferedImage != null) {
+				image.imageXObject = LosslessFactory.createFromImage(document, image.bufferedImage);
+			} else {
+				image.imageXObject = new PDImageXObject(document, new ByteArrayInputStream(image.data),
+						COSName.FLATE_DECODE, image.pixelWidth, image.pixelHeight, image.bitsPerComponent,
+						image.colorSpace);
+				image.data = null;
+			}
+			if (image.digest != null) {
+				writtenImages.put(image.digest, image.imageXObject);
+				encodings.remove(image.digest);
+			}
+		}
+		final PDImageXObject imageXObject = image.imageXObject;
+		final PDPage page = new PDPage(new PDRectangle(encoded.width, encoded.height));
+		document.addPage(page);
+		@Cleanup
+		PDPageContentStream contentStream = new PDPageContentStream(document, page);
+		contentStream.drawImage(imageXObject, 0, 0, encoded.width, encoded.height);
+	}
+
+	/**
+	 * Deflates rows of image data with the compression level configured for PDFBox.
+	 */
+	private static class Compressor {
+
+		private final ByteArrayOutputStream bytes;
+		private final Deflater deflater = new Deflater(Filter.getCompressionLevel());
+		private final DeflaterOutputStream out;
+
+		private Compressor(final int expectedSize) {
+			bytes = new ByteArrayOutputStream(Math.max(32, expectedSize / 4));
+			out = new DeflaterOutputStream(bytes, deflater);
+		}
+
+		private void write(final byte[] row) throws IOException {
+			out.write(row);
+		}
+
+		private byte[] finish() throws IOException {
+			out.close();
+			return bytes.toByteArray();
+		}
+
+		private void end() {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * An image ready to be added as a page. Only images, that are left to
+	 * LosslessFactory, still hold on to their BufferedImage. An image, that refers
+	 * to an earlier image with the same pixels, only has its own page size.
+	 */
+	static class EncodedImage {
+
+		private final BufferedImage bufferedImage;
+		private byte[] data;
+		private PDImageXObject imageXObject;
+		private ByteBuffer digest;
+		private final EncodedImage sameAs;
+		private final PDColorSpace colorSpace;
+		private final int bitsPerComponent;
+		private final int pixelWidth;
+		private final int pixelHeight;
+		private final float width;
+		private final float height;
+
+		private EncodedImage(final BufferedImage image, final byte[] data, final PDColorSpace colorSpace,
+				final int bitsPerComponent, final float width, final float height) {
+			this.bufferedImage = data == null ? image : null;
+			this.data = data;
+			this.colorSpace = colorSpace;
+			this.bitsPerComponent = bitsPerComponent;
+			this.pixelWidth = image.getWidth();
+			this.pixelHeight = image.getHeight();
+			this.width = width;
+			this.height = height;
+			this.sameAs = null;
+		}
+
+		private EncodedImage(final EncodedImage sameAs, final float width, final float height) {
+			this.bufferedImage = null;
+			this.colorSpace = null;
+			this.bitsPerComponent = sameAs.bitsPerComponent;
+			this.pixelWidth = sameAs.pixelWidth;
+			this.pixelHeight = sameAs.pixelHeight;
+			this.width = width;
+			this.height = height;
+			this.sameAs = sameAs;
+		}
+
+		private EncodedImage(final PDImageXObject imageXObject, final BufferedImage image, final float width,
+				final float height) {
+			this.bufferedImage = null;
+			this.imageXObject = imageXObject;
+			this.colorSpace = null;
+			this.bitsPerComponent = imageXObject.getBitsPerComponent();
+			this.pixelWidth = image.getWidth();
+			this.pixelHeight = image.getHeight();
+			this.width = width;
+			this.height = height;
+			this.sameAs = null;
+		}
+	}
+}
@@ -17,11 +17,11 @@
 package de.redsix.pdfcompare;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
 
 public class PageExclusions {
 
-	private final Collection<PageArea> exclusions = new ArrayList<PageArea>();
+	private final List<PageArea> exclusions = new ArrayList<PageArea>();
 	private final PageExclusions delegate;
 
 	public PageExclusions() {
@@ -37,8 +37,9 @@ public class PageExclusions {
 	}
 
 	public boolean contains(final int x, final int y) {
-		for (PageArea exclusion : exclusions) {
-			if (exclusion.contains(x, y)) {
+		// called for every pixel, so no Iterator
+		for (int i = 0; i < exclusions.size(); i++) {
+			if (exclusions.get(i).contains(x, y)) {
 				return true;
 			}
 		}
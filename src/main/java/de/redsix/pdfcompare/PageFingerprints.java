@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import lombok.Cleanup;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.util.Charsets;
+
+/**
+ * Finds pages within one document, that render identically. Two pages are
+ * considered identical, when their content streams, their resources, their
+ * boxes and their rotation are the same. Objects are compared by their content,
+ * so two copies of the same font or image embedded separately still match.
+ * Every object is only digested once per document, so resources shared between
+ * many pages are read only once.
+ *
+ * Every page is mapped to a canonical page, which is the first page with the
+ * same fingerprint.
+ */
+public class PageFingerprints {
+
+	private static final Set<COSName> IGNORED_PAGE_KEYS = new HashSet<COSName>(
+			Arrays.asList(COSName.CONTENTS, COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE,
+					COSName.STRUCT_PARENTS, COSName.METADATA, COSName.getPDFName("PieceInfo"), COSName.LAST_MODIFIED,
+					COSName.getPDFName("Thumb"), COSName.getPDFName("B")));
+	/**
+	 * Back references to parents don't influence rendering and would otherwise pull
+	 * the whole document into every fingerprint.
+	 */
+	private static final Set<COSName> IGNORED_KEYS = new HashSet<COSName>(
+			Arrays.asList(COSName.PARENT, COSName.P, COSName.STRUCT_PARENT));
+
+	private final int[] canonicalPages;
+
+	private PageFingerprints(final int[] canonicalPages) {
+		this.canonicalPages = canonicalPages;
+	}
+
+	/**
+	 * Maps every page to itself. Used, when page deduplication is switched off.
+	 *
+	 * @param numberOfPages the number of pages to map
+	 * @return fingerprints without any duplicates
+	 */
+	public static PageFingerprints unique(final int numberOfPages) {
+		final int[] canonicalPages = new int[numberOfPages];
+		for (int i = 0; i < numberOfPages; i++) {
+			canonicalPages[i] = i;
+		}
+		return new PageFingerprints(canonicalPages);
+	}
+
+	/**
+	 * Calculates the fingerprints of the first numberOfPages pages of a document.
+	 *
+	 * @param document the document to read
+	 * @param numberOfPages the number of pages to fingerprint
+	 * @return the fingerprints of the document
+	 * @throws IOException when a stream can't be read
+	 */
+	public static PageFingerprints of(final PDDocument document, final int numberOfPages) throws IOException {
+		final int[] canonicalPages = new int[numberOfPages];
+		final Map<String, Integer> firstPages = new HashMap<String, Integer>();
+		final Digester digester = new Digester();
+		for (int i = 0; i < numberOfPages; i++) {
+			final String fingerprint = digester.digest(document.getPage(i));
+			final Integer firstPage = firstPages.get(fingerprint);
+			if (firstPage == null) {
+				firstPages.put(fingerprint, i);
+				canonicalPages[i] = i;
+			} else {
+				canonicalPages[i] = firstPage;
+			}
+		}
+		return new PageFingerprints(canonicalPages);
+	}
+
+	/**
+	 * @param pageIndex the page starting with 0
+	 * @return the index of the first page, that renders identically to the given
+	 * page.
+	 */
+	public int canonicalPage(final int pageIndex) {
+		return canonicalPages[pageIndex];
+	}
+
+	public int getNumberOfPages() {
+		return canonicalPages.length;
+	}
+
+	private static class Digester {
+
+		private final Map<String, String> indirectDigests = new HashMap<String, String>();
+		private final Map<COSBase, String> streamDigests = new IdentityHashMap<COSBase, String>();
+		private final Set<String> indirectInProgress = new HashSet<String>();
+		private final Map<COSBase, Integer> directInProgress = new IdentityHashMap<COSBase, Integer>();
+
+		String digest(final PDPage page) throws IOException {
+			final MessageDigest digest = newDigest();
+			update(digest, "contents");
+			add(digest, page.getCOSObject().getItem(COSName.CONTENTS));
+			update(digest, "resources");
+			final PDResources resources = page.getResources();
+			add(digest, resources != null ? resources.getCOSObject() : null);
+			update(digest, "mediaBox");
+			add(digest, page.getMediaBox());
+			update(digest, "cropBox");
+			add(digest, page.getCropBox());
+			update(digest, "rotate " + page.getRotation());
+			addEntries(digest, page.getCOSObject(), IGNORED_PAGE_KEYS);
+			return toHex(digest.digest());
+		}
+
+		private void add(final MessageDigest digest, final PDRectangle rectangle) {
+			update(digest, rectangle.getLowerLeftX() + " " + rectangle.getLowerLeftY() + " "
+					+ rectangle.getUpperRightX() + " " + rectangle.getUpperRightY());
+		}
+
+		private void add(final MessageDigest digest, final COSBase base) throws IOException {
+			if (base == null) {
+				update(digest, "null");
+			} else if (base instanceof COSObject) {
+				update(digest, "object " + digestIndirect((COSObject) base));
+			} else if (base instanceof COSStream) {
+				update(digest, "stream " + digestStream((COSStream) base));
+			} else if (base instanceof COSDictionary || base instanceof COSArray) {
+				final Integer cycle = directInProgress.get(base);
+				if (cycle != null) {
+					update(digest, "cycle " + cycle);
+					return;
+				}
+				directInProgress.put(base, directInProgress.size());
+				try {
+					if (base instanceof COSDictionary) {
+						update(digest, "dict");
+						addEntries(digest, (COSDictionary) base, IGNORED_KEYS);
+					} else {
+						final COSArray array = (COSArray) base;
+						update(digest, "array " + array.size());
+						for (int i = 0; i < array.size(); i++) {
+							add(digest, array.get(i));
+						}
+					}
+				} finally {
+					directInProgress.remove(base);
+				}
+			} else {
+				update(digest, base.toString());
+			}
+		}
+
+		private String digestIndirect(final COSObject object) throws IOException {
+			final String key = object.getObjectNumber() + " " + object.getGenerationNumber();
+			if (indirectInProgress.contains(key)) {
+				return "cycle " + key;
+			}
+			String result = indirectDigests.get(key);
+			if (result == null) {
+				indirectInProgress.add(key);
+				try {
+					final MessageDigest digest = newDigest();
+					add(digest, object.getObject());
+					result = toHex(digest.digest());
+				} finally {
+					indirectInProgress.remove(key);
+				}
+				indirectDigests.put(key, result);
+			}
+			return result;
+		}
+
+		private String digestStream(final COSStream stream) throws IOException {
+			String result = streamDigests.get(stream);
+			if (result == null) {
+				final MessageDigest digest = newDigest();
+				addEntries(digest, stream, IGNORED_KEYS);
+				@Cleanup
+				final InputStream data = stream.createRawInputStream();
+				final byte[] buffer = new byte[8192];
+				int read;
+				while ((read = data.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+				result = toHex(digest.digest());
+				streamDigests.put(stream, result);
+			}
+			return result;
+		}
+
+		private void addEntries(final MessageDigest digest, final COSDictionary dictionary,
+				final Set<COSName> ignoredKeys) throws IOException {
+			final Map<String, COSBase> entries = new TreeMap<String, COSBase>();
+			for (final Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+				if (!ignoredKeys.contains(entry.getKey())) {
+					entries.put(entry.getKey().getName(), entry.getValue());
+				}
+			}
+			update(digest, "{" + entries.size());
+			for (final Map.Entry<String, COSBase> entry : entries.entrySet()) {
+				update(digest, entry.getKey());
+				add(digest, entry.getValue());
+			}
+			update(digest, "}");
+		}
+
+		private static MessageDigest newDigest() {
+			try {
+				return MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private static void update(final MessageDigest digest, final String s) {
+			digest.update(s.getBytes(Charsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		private static String toHex(final byte[] bytes) {
+			final StringBuilder result = new StringBuilder();
+			for (final byte b : bytes) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		}
+	}
+}
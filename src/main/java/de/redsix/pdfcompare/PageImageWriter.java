@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * Writes result images as one PNG file per page into a directory. The files are
+ * encoded and written concurrently by the Encode threads.
+ */
+class PageImageWriter extends PageSink<String> {
+
+	private final File directory;
+	private final Map<Integer, String> files = new TreeMap<Integer, String>();
+
+	PageImageWriter(final File directory, final Environment environment) {
+		super(environment);
+		this.directory = directory;
+	}
+
+	static String fileName(final int pageIndex) {
+		return String.format("page-%04d.png", pageIndex + 1);
+	}
+
+	@Override
+	protected String encode(final int pageIndex, final ImageWithDimension image, final PageArea diffArea)
+			throws IOException {
+		final String fileName = fileName(pageIndex);
+		if (!ImageIO.write(image.bufferedImage, "png", new File(directory, fileName))) {
+			throw new IOException("No PNG writer found for page " + (pageIndex + 1));
+		}
+		return fileName;
+	}
+
+	@Override
+	protected void write(final int pageIndex, final String fileName) {
+		files.put(pageIndex, fileName);
+	}
+
+	/**
+	 * @return the names of the written files by page index
+	 */
+	Map<Integer, String> getFiles() {
+		return files;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one page, as delivered to a {@link PageResultListener}.
+ */
+public final class PageResult {
+
+	private final int pageIndex;
+	private final PageDiffCalculator diffCalculator;
+	private volatile ImageWithDimension diffImage;
+
+	PageResult(final int pageIndex, final PageDiffCalculator diffCalculator, final ImageWithDimension diffImage) {
+		this.pageIndex = pageIndex;
+		this.diffCalculator = diffCalculator;
+		this.diffImage = diffImage;
+	}
+
+	/**
+	 * @return the page starting with 0
+	 */
+	public int getPageIndex() {
+		return pageIndex;
+	}
+
+	public PageDiffCalculator getDiffCalculator() {
+		return diffCalculator;
+	}
+
+	public boolean differencesFound() {
+		return diffCalculator.differencesFound();
+	}
+
+	public boolean differencesFoundInExclusion() {
+		return diffCalculator.differencesFoundInExclusion();
+	}
+
+	/**
+	 * @return the separate areas of differences on this page, or an empty list,
+	 * when the page is equal. A page, that exists in only one of the documents, is
+	 * reported as one area covering the whole page.
+	 */
+	public List<PageArea> getDiffAreas() {
+		if (!diffCalculator.differencesFound()) {
+			return Collections.emptyList();
+		}
+		if (!diffCalculator.getDiffAreas().isEmpty()) {
+			return Collections.unmodifiableList(diffCalculator.getDiffAreas());
+		}
+		final PageArea diffArea = diffCalculator.getDiffArea();
+		return Collections.singletonList(diffArea != null ? diffArea : new PageArea(pageIndex + 1));
+	}
+
+	/**
+	 * The diff image is only handed out while
+	 * {@link PageResultListener#pageCompared(PageResult)} runs and only, when the
+	 * listener was registered to receive diff images. It is the image, that the
+	 * comparison works with, so it must not be modified. Copy it, when it is needed
+	 * later.
+	 *
+	 * @return the image with the differences marked or null, when it isn't
+	 * available
+	 */
+	public ImageWithDimension getDiffImage() {
+		return diffImage;
+	}
+
+	void release() {
+		diffImage = null;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.redsix.pdfcompare.PageResultListener.Order;
+
+/**
+ * Passes the pages on to the CompareResult and delivers each of them to a
+ * {@link PageResultListener}.
+ */
+class PageResultDispatcher implements ResultCollector {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PageResultDispatcher.class);
+
+	private final ResultCollector delegate;
+	private final PageResultListener listener;
+	private final Order order;
+	private final boolean withDiffImages;
+	private final SortedMap<Integer, PageResult> pending = new TreeMap<Integer, PageResult>();
+	private int nextPage = 0;
+	private volatile boolean done;
+
+	PageResultDispatcher(final ResultCollector delegate, final PageResultListener listener, final Order order,
+			final boolean withDiffImages) {
+		this.delegate = delegate;
+		this.listener = listener;
+		this.order = order;
+		this.withDiffImages = withDiffImages;
+	}
+
+	@Override
+	public void addPage(final PageDiffCalculator diffCalculator, final int pageIndex,
+			final ImageWithDimension expectedImage, final ImageWithDimension actualImage,
+			final ImageWithDimension diffImage) {
+		if (done) {
+			return;
+		}
+		delegate.addPage(diffCalculator, pageIndex, expectedImage, actualImage, diffImage);
+		final PageResult pageResult = new PageResult(pageIndex, diffCalculator, withDiffImages ? diffImage : null);
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			if (order == Order.COMPLETION) {
+				deliver(pageResult);
+				return;
+			}
+			pending.put(pageIndex, pageResult);
+			deliverPending();
+		}
+	}
+
+	/**
+	 * A page, that could not be rendered, is not delivered. In page order, the
+	 * pages after it are delivered without waiting for it.
+	 */
+	@Override
+	public void pageFailed(final int pageIndex) {
+		if (done) {
+			return;
+		}
+		delegate.pageFailed(pageIndex);
+		synchronized (this) {
+			if (done || order == Order.COMPLETION) {
+				return;
+			}
+			pending.put(pageIndex, null);
+			deliverPending();
+		}
+	}
+
+	/**
+	 * Delivers the pending pages, that follow the last delivered page without a
+	 * gap. Failed pages are kept as null and skipped.
+	 */
+	private void deliverPending() {
+		while (!pending.isEmpty() && pending.firstKey() == nextPage) {
+			final PageResult pageResult = pending.remove(nextPage);
+			if (pageResult != null) {
+				deliver(pageResult);
+			}
+			nextPage++;
+		}
+	}
+
+	@Override
+	public void noPagesFound() {
+		delegate.noPagesFound();
+	}
+
+	@Override
+	public void done() {
+		synchronized (this) {
+			done = true;
+			for (final PageResult pageResult : pending.values()) {
+				if (pageResult != null) {
+					deliver(pageResult);
+				}
+			}
+			pending.clear();
+		}
+		delegate.done();
+	}
+
+	private void deliver(final PageResult pageResult) {
+		try {
+			listener.pageCompared(pageResult);
+		} catch (RuntimeException e) {
+			LOG.warn("PageResultListener failed for page {}", pageResult.getPageIndex() + 1, e);
+		} finally {
+			pageResult.release();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+/**
+ * Receives the outcome of each page, while the comparison is still running.
+ * Register it with
+ * {@link PdfComparator#withPageListener(PageResultListener, PageResultListener.Order, boolean)}.
+ * <p>
+ * Calls are made one at a time from the threads of the pipeline, so an
+ * implementation doesn't need to be thread safe, but it should return quickly,
+ * because it holds up the comparison of further pages. Exceptions thrown by the
+ * listener are logged and don't stop the comparison.
+ */
+public interface PageResultListener {
+
+	enum Order {
+		/**
+		 * Pages are delivered as soon as they are compared.
+		 */
+		COMPLETION,
+		/**
+		 * Pages are delivered in ascending order. Pages, that are compared ahead of an
+		 * earlier page, are held back until the earlier page is done. Pages, that
+		 * couldn't be compared, are skipped at the end of the comparison.
+		 */
+		PAGE
+	}
+
+	/**
+	 * @param pageResult the outcome of one page
+	 */
+	void pageCompared(PageResult pageResult);
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static de.redsix.pdfcompare.Utilities.blockingExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * Takes the result images of a comparison page by page and writes them
+ * somewhere. Images are encoded concurrently by a bounded pool of Encode
+ * threads, while the encoded pages are written in order by the calling thread.
+ * Only a limited number of pages is encoded ahead, so the encoded data does not
+ * pile up in memory.
+ *
+ * @param <T> the type of an encoded page
+ */
+abstract class PageSink<T> implements Closeable {
+
+	private final Environment environment;
+	private final int maxPending;
+	private final Deque<Future<T>> pending = new ArrayDeque<Future<T>>();
+	private final Deque<Integer> pendingPages = new ArrayDeque<Integer>();
+	private ExecutorService encodeExecutor;
+
+	PageSink(final Environment environment) {
+		this.environment = environment;
+		this.maxPending = 2 * Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Schedules the image to be encoded and written as the next page.
+	 *
+	 * @param pageIndex the index of the compared page starting with 0
+	 * @param image the image for the next page
+	 * @param diffArea the area with differences on the page or null
+	 * @throws IOException when an earlier page can't be written
+	 */
+	void add(final int pageIndex, final ImageWithDimension image, final PageArea diffArea) throws IOException {
+		pending.add(encodeExecutor().submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return encode(pageIndex, image, diffArea);
+			}
+		}));
+		pendingPages.add(pageIndex);
+		while (pending.size() > maxPending) {
+			writeNext();
+		}
+	}
+
+	/**
+	 * Schedules the image to be encoded, but leaves writing it to the caller. This
+	 * is for pages, that are added out of order. The caller writes the encoded
+	 * pages in order with {@link #write(int, Object)}. When the Encode threads are
+	 * all busy, this blocks until one of them is free.
+	 *
+	 * @param pageIndex the index of the compared page starting with 0
+	 * @param image the image of the page
+	 * @param diffArea the area with differences on the page or null
+	 * @param whenEncoded is run by the Encode thread, after the page was encoded or
+	 * failed
+	 * @return the encoded page
+	 */
+	Future<T> encodeLater(final int pageIndex, final ImageWithDimension image, final PageArea diffArea,
+			final Runnable whenEncoded) {
+		final FutureTask<T> encoding = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return encode(pageIndex, image, diffArea);
+			}
+		}) {
+			@Override
+			protected void done() {
+				whenEncoded.run();
+			}
+		};
+		encodeExecutor().execute(encoding);
+		return encoding;
+	}
+
+	private synchronized ExecutorService encodeExecutor() {
+		if (encodeExecutor == null) {
+			final int threads = Runtime.getRuntime().availableProcessors();
+			encodeExecutor = blockingExecutor("Encode", threads, threads, environment);
+		}
+		return encodeExecutor;
+	}
+
+	/**
+	 * Writes all pages, that are still being encoded.
+	 *
+	 * @throws IOException when a page can't be written
+	 */
+	void finish() throws IOException {
+		while (!pending.isEmpty()) {
+			writeNext();
+		}
+		finished();
+	}
+
+	private void writeNext() throws IOException {
+		final T encoded = get(pending.remove());
+		write(pendingPages.remove(), encoded);
+	}
+
+	/**
+	 * Encodes a page. This is called concurrently by the Encode threads.
+	 *
+	 * @param pageIndex the index of the compared page starting with 0
+	 * @param image the image of the page
+	 * @param diffArea the area with differences on the page or null
+	 * @return the encoded page
+	 * @throws IOException when the page can't be encoded
+	 */
+	protected abstract T encode(int pageIndex, ImageWithDimension image, PageArea diffArea) throws IOException;
+
+	/**
+	 * Writes an encoded page. This is called in page order by the thread, that adds
+	 * the pages.
+	 *
+	 * @param pageIndex the index of the compared page starting with 0
+	 * @param encoded the encoded page
+	 * @throws IOException when the page can't be written
+	 */
+	protected abstract void write(int pageIndex, T encoded) throws IOException;
+
+	/**
+	 * Called, when all pages are written.
+	 *
+	 * @throws IOException when finishing fails
+	 */
+	protected void finished() throws IOException {
+	}
+
+	static <T> T get(final Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while encoding a page", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		for (final Future<T> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+		pendingPages.clear();
+		Utilities.shutdownAndAwaitTermination(encodeExecutor, "Encode");
+	}
+}
@@ -17,6 +17,7 @@
 package de.redsix.pdfcompare;
 
 import static de.redsix.pdfcompare.Utilities.blockingExecutor;
+import static de.redsix.pdfcompare.Utilities.blockingIoExecutor;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.awt.Color;
@@ -27,21 +28,26 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import lombok.Cleanup;
 import lombok.SneakyThrows;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
+import de.redsix.pdfcompare.MetricsListener.Stage;
 import de.redsix.pdfcompare.env.DefaultEnvironment;
 import de.redsix.pdfcompare.env.Environment;
 
@@ -60,15 +66,23 @@ public class PdfComparator<T extends CompareResultImpl> {
 	private Exclusions exclusions;
 	private Supplier<InputStream> expectedStreamSupplier;
 	private Supplier<InputStream> actualStreamSupplier;
-	private ExecutorService drawExecutor;
-	private ExecutorService parrallelDrawExecutor;
-	private ExecutorService diffExecutor;
+	private volatile ExecutorService drawExecutor;
+	private volatile ExecutorService parrallelDrawExecutor;
+	private volatile ExecutorService diffExecutor;
 	private final T compareResult;
-	private final int timeout = 3;
-	private final TimeUnit unit = TimeUnit.MINUTES;
+	private volatile boolean cancelled = false;
+	private volatile boolean timedOut = false;
+	private volatile CountDownLatch pagesLatch;
 	private String expectedPassword = "";
 	private String actualPassword = "";
 	private boolean withIgnoreCalled = false;
+	private MetricsListener metrics = MetricsListener.NONE;
+	private MetricsListener pipelineMetrics = MetricsListener.NONE;
+	private ConcurrencyTuner concurrencyTuner;
+	private PageResultListener pageListener;
+	private PageResultListener.Order pageOrder;
+	private boolean pageListenerWithDiffImages;
+	private ResultCollector resultCollector;
 
 	private PdfComparator(T compareResult) {
 		notNull(compareResult, "compareResult is null");
@@ -290,14 +304,78 @@ public class PdfComparator<T extends CompareResultImpl> {
 		return this;
 	}
 
+	/**
+	 * Reports timings of the stages, depths of queues and use of caches of the
+	 * comparison and of writing the result to the given listener.
+	 *
+	 * @param metrics the listener, e.g. {@link PipelineMetrics#global()}
+	 * @return this
+	 */
+	public PdfComparator<T> withMetrics(final MetricsListener metrics) {
+		notNull(metrics, "metrics is null");
+		this.metrics = metrics;
+		return this;
+	}
+
+	/**
+	 * Delivers the outcome of each page to the given listener, as soon as the page
+	 * is compared, in completion order and without diff images.
+	 *
+	 * @param listener receives the pages
+	 * @return this
+	 */
+	public PdfComparator<T> withPageListener(final PageResultListener listener) {
+		return withPageListener(listener, PageResultListener.Order.COMPLETION, false);
+	}
+
+	/**
+	 * Delivers the outcome of each page to the given listener, while the comparison
+	 * is still running, e.g. to report progress or publish results early.
+	 *
+	 * @param listener receives the pages
+	 * @param order whether pages are delivered as they are done or in ascending
+	 * order
+	 * @param withDiffImages whether {@link PageResult#getDiffImage()} hands out the
+	 * diff image. With {@link PageResultListener.Order#PAGE} this keeps images of
+	 * pages in the heap, that are done ahead of an earlier page.
+	 * @return this
+	 */
+	public PdfComparator<T> withPageListener(final PageResultListener listener, final PageResultListener.Order order,
+			final boolean withDiffImages) {
+		notNull(listener, "listener is null");
+		notNull(order, "order is null");
+		this.pageListener = listener;
+		this.pageOrder = order;
+		this.pageListenerWithDiffImages = withDiffImages;
+		return this;
+	}
+
 	private void buildEnvironment() {
+		compareResult.setMetrics(metrics);
 		compareResult.setEnvironment(environment);
-		drawExecutor = blockingExecutor("Draw", 1, 50, environment);
-		parrallelDrawExecutor = blockingExecutor("ParallelDraw", 2, 4, environment);
-		diffExecutor = blockingExecutor("Diff", 1, 2, environment);
+		drawExecutor = blockingIoExecutor("Draw", 1, 1, 50, environment, metrics);
+		if (environment.useAdaptiveConcurrency()) {
+			final int processors = Runtime.getRuntime().availableProcessors();
+			final int renderThreads = ConcurrencyTuner.renderThreads(processors);
+			concurrencyTuner = new ConcurrencyTuner(metrics, processors, RenderAdmission.global());
+			pipelineMetrics = concurrencyTuner;
+			parrallelDrawExecutor = blockingExecutor("ParallelDraw", renderThreads, renderThreads, 2 * renderThreads,
+					environment, metrics);
+			diffExecutor = blockingExecutor("Diff", 1, 1,
+					Math.max(2, ConcurrencyTuner.diffThreadsByProcessors(processors)), environment, metrics);
+		} else {
+			pipelineMetrics = metrics;
+			parrallelDrawExecutor = blockingExecutor("ParallelDraw", 2, 2, 4, environment, metrics);
+			diffExecutor = blockingExecutor("Diff", 1, 1, 2, environment, metrics);
+		}
+		if (cancelled) {
+			cancelExecutors();
+		}
 	}
 
 	public T compare() throws IOException {
+		resultCollector = pageListener == null ? compareResult
+				: new PageResultDispatcher(compareResult, pageListener, pageOrder, pageListenerWithDiffImages);
 		try {
 			if (expectedStreamSupplier == null || actualStreamSupplier == null) {
 				return compareResult;
@@ -309,12 +387,16 @@ public class PdfComparator<T extends CompareResultImpl> {
 				try {
 					@Cleanup
 					val actualStream = actualStreamSupplier.get();
+					long start = System.nanoTime();
 					@Cleanup
 					val expectedDocument = PDDocument.load(expectedStream, expectedPassword,
 							Utilities.getMemorySettings(environment.getDocumentCacheSize()));
+					metrics.stageFinished(Stage.LOAD_EXPECTED, -1, System.nanoTime() - start);
+					start = System.nanoTime();
 					@Cleanup
 					val actualDocument = PDDocument.load(actualStream, actualPassword,
 							Utilities.getMemorySettings(environment.getDocumentCacheSize()));
+					metrics.stageFinished(Stage.LOAD_ACTUAL, -1, System.nanoTime() - start);
 					compare(expectedDocument, actualDocument);
 
 				} catch (IOException ex) {
@@ -331,88 +413,316 @@ public class PdfComparator<T extends CompareResultImpl> {
 					// log.warn("No files found to compare. Tried Expected: '{}' and Actual: '{}'",
 					// ex.getFile(),
 					// innerEx.getFile());
-					compareResult.noPagesFound();
+					resultCollector.noPagesFound();
 				}
 			}
 		} finally {
-			compareResult.done();
+			resultCollector.done();
 		}
 		return compareResult;
 	}
 
+	/**
+	 * Runs the comparison on a new daemon thread.
+	 *
+	 * @return a Future for the result, see {@link #compareAsync(Executor)}
+	 */
+	public Future<T> compareAsync() {
+		return compareAsync(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				final Thread thread = Utilities.ioThreadFactory("PdfCompare", environment).newThread(command);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		});
+	}
+
+	/**
+	 * Runs the comparison with the given executor. Cancelling the returned Future
+	 * cancels the comparison like {@link #cancel()}. When the overall timeout of
+	 * the Environment is exceeded, the Future fails with a
+	 * {@link TimeoutException}.
+	 *
+	 * @param executor runs the comparison
+	 * @return a Future for the result
+	 */
+	public Future<T> compareAsync(final Executor executor) {
+		notNull(executor, "executor is null");
+		final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				final T result = compare();
+				if (timedOut) {
+					throw new TimeoutException(
+							"Comparison timed out after " + environment.getOverallTimeout() + " minutes");
+				}
+				return result;
+			}
+		}) {
+			@Override
+			public boolean cancel(final boolean mayInterruptIfRunning) {
+				if (!isDone()) {
+					PdfComparator.this.cancel();
+				}
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Stops a running comparison. Pages, that wait to be rendered or diffed, are
+	 * dropped and their memory reservations are released. Running renderings are
+	 * interrupted. compare returns with the pages, that were done so far.
+	 */
+	public void cancel() {
+		cancelled = true;
+		cancelExecutors();
+		releaseLatch();
+	}
+
+	/**
+	 * Pages, that were dropped, never count down the latch.
+	 */
+	private void releaseLatch() {
+		final CountDownLatch latch = pagesLatch;
+		if (latch != null) {
+			while (latch.getCount() > 0) {
+				latch.countDown();
+			}
+		}
+	}
+
+	private void cancelExecutors() {
+		abandon(drawExecutor);
+		abandon(parrallelDrawExecutor);
+		abandon(diffExecutor);
+	}
+
+	/**
+	 * Renderings, that were already running, don't stop on an interrupt. The
+	 * documents are closed, when compare returns, so they have to finish first.
+	 */
+	private void awaitRunningTasks() {
+		final int timeout = environment.getPageTimeout();
+		Utilities.awaitTermination(drawExecutor, "Draw", timeout, TimeUnit.SECONDS);
+		Utilities.awaitTermination(parrallelDrawExecutor, "Parallel Draw", timeout, TimeUnit.SECONDS);
+		Utilities.awaitTermination(diffExecutor, "Diff", timeout, TimeUnit.SECONDS);
+	}
+
+	private void abandon(final ExecutorService executor) {
+		if (executor != null) {
+			for (final Runnable task : executor.shutdownNow()) {
+				if (task instanceof Future) {
+					((Future<?>) task).cancel(true);
+				} else if (task instanceof PdfComparator<?>.DiffTask) {
+					((PdfComparator<?>.DiffTask) task).abandon();
+				}
+			}
+		}
+	}
+
 	private void compare(final PDDocument expectedDocument, final PDDocument actualDocument) throws IOException {
-		expectedDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment));
-		val expectedPdfRenderer = new PDFRenderer(expectedDocument);
-		actualDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment));
-		val actualPdfRenderer = new PDFRenderer(actualDocument);
+		expectedDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment, metrics));
+		actualDocument.setResourceCache(new ResourceCacheWithLimitedImages(environment, metrics));
 		val minPageCount = Math.min(expectedDocument.getNumberOfPages(), actualDocument.getNumberOfPages());
-		val latch = new CountDownLatch(minPageCount);
-		for (int pageIndex = 0; pageIndex < minPageCount; pageIndex++) {
-			drawImage(latch, pageIndex, expectedDocument, actualDocument, expectedPdfRenderer, actualPdfRenderer);
+		val expectedRenderer = new DocumentRenderer(expectedDocument, minPageCount, environment, metrics);
+		val actualRenderer = new DocumentRenderer(actualDocument, minPageCount, environment, metrics);
+		if (concurrencyTuner != null && minPageCount > 0) {
+			concurrencyTuner.start(diffExecutor,
+					Math.max(expectedRenderer.estimateImageSize(0), actualRenderer.estimateImageSize(0)));
 		}
-		Utilities.await(latch, "FullCompare", environment);
-		Utilities.shutdownAndAwaitTermination(drawExecutor, "Draw");
-		Utilities.shutdownAndAwaitTermination(parrallelDrawExecutor, "Parallel Draw");
-		Utilities.shutdownAndAwaitTermination(diffExecutor, "Diff");
-		if (expectedDocument.getNumberOfPages() > minPageCount) {
-			addExtraPages(expectedDocument, expectedPdfRenderer, minPageCount, MISSING_RGB, true);
-		} else if (actualDocument.getNumberOfPages() > minPageCount) {
-			addExtraPages(actualDocument, actualPdfRenderer, minPageCount, EXTRA_RGB, false);
+		val diffs = new DuplicateCache<DiffKey, DiffImage>(RenderAdmission.global());
+		try {
+			for (int pageIndex = 0; pageIndex < minPageCount; pageIndex++) {
+				diffs.expect(diffKey(pageIndex, expectedRenderer, actualRenderer));
+			}
+			val latch = new CountDownLatch(minPageCount);
+			pagesLatch = latch;
+			for (int pageIndex = 0; pageIndex < minPageCount && !cancelled; pageIndex++) {
+				drawImage(latch, pageIndex, expectedRenderer, actualRenderer, diffs);
+			}
+			if (cancelled) {
+				releaseLatch();
+			}
+			if (!Utilities.await(latch, "FullCompare", environment)) {
+				if (!cancelled) {
+					timedOut = true;
+				}
+				cancel();
+			}
+			if (cancelled) {
+				awaitRunningTasks();
+				return;
+			}
+			Utilities.shutdownAndAwaitTermination(drawExecutor, "Draw");
+			Utilities.shutdownAndAwaitTermination(parrallelDrawExecutor, "Parallel Draw");
+			Utilities.shutdownAndAwaitTermination(diffExecutor, "Diff");
+			if (expectedDocument.getNumberOfPages() > minPageCount) {
+				addExtraPages(expectedRenderer, minPageCount, MISSING_RGB, true);
+			} else if (actualDocument.getNumberOfPages() > minPageCount) {
+				addExtraPages(actualRenderer, minPageCount, EXTRA_RGB, false);
+			}
+		} finally {
+			diffs.clear();
+			expectedRenderer.clearCache();
+			actualRenderer.clearCache();
 		}
 	}
 
-	private void drawImage(final CountDownLatch latch, final int pageIndex, final PDDocument expectedDocument,
-			final PDDocument actualDocument, final PDFRenderer expectedPdfRenderer,
-			final PDFRenderer actualPdfRenderer) {
+	/**
+	 * Pages with the same key render identically and use the same exclusions, so
+	 * they produce the same diff.
+	 */
+	private DiffKey diffKey(final int pageIndex, final DocumentRenderer expectedRenderer,
+			final DocumentRenderer actualRenderer) {
+		return new DiffKey(expectedRenderer.canonicalPage(pageIndex), actualRenderer.canonicalPage(pageIndex),
+				exclusions.forPage(pageIndex + 1));
+	}
+
+	private void drawImage(final CountDownLatch latch, final int pageIndex, final DocumentRenderer expectedRenderer,
+			final DocumentRenderer actualRenderer, final DuplicateCache<DiffKey, DiffImage> diffs) {
 		drawExecutor.execute(new Runnable() {
 			@Override
 			public void run() {
+				RenderAdmission.Reservation reservation = null;
+				boolean handedToDiff = false;
 				try {
+					if (cancelled) {
+						return;
+					}
+					reservation = reserve(pageIndex, expectedRenderer, actualRenderer);
 					log.trace("Drawing page {}", pageIndex);
 					val expectedImageFuture = parrallelDrawExecutor.submit(new Callable<ImageWithDimension>() {
 						@Override
 						public ImageWithDimension call() throws Exception {
-							return renderPageAsImage(expectedDocument, expectedPdfRenderer, pageIndex, environment);
+							final long start = System.nanoTime();
+							try {
+								return expectedRenderer.render(pageIndex);
+							} finally {
+								pipelineMetrics.stageFinished(Stage.RENDER_EXPECTED, pageIndex,
+										System.nanoTime() - start);
+							}
 						}
 					});
 					val actualImageFuture = parrallelDrawExecutor.submit(new Callable<ImageWithDimension>() {
 						@Override
 						public ImageWithDimension call() throws Exception {
-							return renderPageAsImage(actualDocument, actualPdfRenderer, pageIndex, environment);
+							final long start = System.nanoTime();
+							try {
+								return actualRenderer.render(pageIndex);
+							} finally {
+								pipelineMetrics.stageFinished(Stage.RENDER_ACTUAL, pageIndex,
+										System.nanoTime() - start);
+							}
 						}
 					});
 					val expectedImage = getImage(expectedImageFuture, pageIndex, "expected document");
 					val actualImage = getImage(actualImageFuture, pageIndex, "actual document");
 					val diffImage = new DiffImage(expectedImage, actualImage, pageIndex, environment, exclusions,
-							compareResult);
+							resultCollector);
+					val diffKey = diffKey(pageIndex, expectedRenderer, actualRenderer);
 					log.trace("Enqueueing page {}.", pageIndex);
-					diffExecutor.execute(new Runnable() {
-						@Override
-						public void run() {
-							log.trace("Diffing page {}", diffImage);
-							diffImage.diffImages();
-							log.trace("DONE Diffing page {}", diffImage);
-						}
-					});
+					diffExecutor.execute(new DiffTask(pageIndex, diffImage, diffKey, diffs, reservation));
+					handedToDiff = true;
 					log.trace("DONE drawing page {}", pageIndex);
 				} catch (RenderingException e) {
+					resultCollector.pageFailed(pageIndex);
 				} finally {
+					if (reservation != null && (!handedToDiff || cancelled)) {
+						reservation.release();
+					}
 					latch.countDown();
 				}
 			}
 		});
 	}
 
+	/**
+	 * Reserves memory for the expected, the actual and the diff image of a page,
+	 * before the page is rendered. The reservation is released, when the page was
+	 * handed to the CompareResult, which accounts for the images it keeps.
+	 */
+	private RenderAdmission.Reservation reserve(final int pageIndex, final DocumentRenderer expectedRenderer,
+			final DocumentRenderer actualRenderer) {
+		val expectedSize = expectedRenderer.estimateImageSize(pageIndex);
+		val actualSize = actualRenderer.estimateImageSize(pageIndex);
+		try {
+			return RenderAdmission.global().reserve(expectedSize + actualSize + Math.max(expectedSize, actualSize));
+		} catch (InterruptedException e) {
+			log.warn("Waiting for memory to render page {} was interrupted", pageIndex);
+			Thread.currentThread().interrupt();
+			throw new RenderingException();
+		}
+	}
+
+	private class DiffTask implements Runnable {
+
+		private final int pageIndex;
+		private final DiffImage diffImage;
+		private final DiffKey diffKey;
+		private final DuplicateCache<DiffKey, DiffImage> diffs;
+		private final RenderAdmission.Reservation reservation;
+
+		DiffTask(final int pageIndex, final DiffImage diffImage, final DiffKey diffKey,
+				final DuplicateCache<DiffKey, DiffImage> diffs, final RenderAdmission.Reservation reservation) {
+			this.pageIndex = pageIndex;
+			this.diffImage = diffImage;
+			this.diffKey = diffKey;
+			this.diffs = diffs;
+			this.reservation = reservation;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (cancelled) {
+					return;
+				}
+				val earlierDiff = diffs.take(diffKey);
+				metrics.cacheAccess("diffs", earlierDiff != null);
+				if (earlierDiff != null) {
+					diffImage.reuseDiffOf(earlierDiff);
+					return;
+				}
+				log.trace("Diffing page {}", diffImage);
+				val start = System.nanoTime();
+				diffImage.diffImages();
+				pipelineMetrics.stageFinished(Stage.DIFF, pageIndex, System.nanoTime() - start);
+				diffs.offer(diffKey, diffImage, diffImage.getImageBytes());
+				log.trace("DONE Diffing page {}", diffImage);
+			} finally {
+				reservation.release();
+			}
+		}
+
+		/**
+		 * Releases the memory of a task, that will never run.
+		 */
+		void abandon() {
+			reservation.release();
+		}
+	}
+
 	private ImageWithDimension getImage(final Future<ImageWithDimension> imageFuture, final int pageIndex,
 			final String type) {
+		final int timeout = environment.getPageTimeout();
 		try {
-			return imageFuture.get(timeout, unit);
+			return imageFuture.get(timeout, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
-			log.warn("Waiting for Future was interrupted while rendering page {} for {}", pageIndex, type, e);
+			if (!cancelled) {
+				log.warn("Waiting for Future was interrupted while rendering page {} for {}", pageIndex, type, e);
+			}
+			imageFuture.cancel(true);
 			Thread.currentThread().interrupt();
+		} catch (CancellationException e) {
+			log.debug("Rendering page {} for {} was cancelled", pageIndex, type);
 		} catch (TimeoutException e) {
-			log.error("Waiting for Future timed out after {} {} while rendering page {} for {}", timeout, unit,
+			log.error("Waiting for Future timed out after {} seconds while rendering page {} for {}", timeout,
 					pageIndex, type, e);
+			imageFuture.cancel(true);
 		} catch (ExecutionException e) {
 			log.error("Error while rendering page {} for {}", pageIndex, type, e);
 		}
@@ -422,14 +732,13 @@ public class PdfComparator<T extends CompareResultImpl> {
 	private void addSingleDocumentToResult(InputStream expectedPdfIS, int markerColor) throws IOException {
 		@Cleanup
 		val expectedDocument = PDDocument.load(expectedPdfIS);
-		val expectedPdfRenderer = new PDFRenderer(expectedDocument);
-		addExtraPages(expectedDocument, expectedPdfRenderer, 0, markerColor, true);
+		addExtraPages(new DocumentRenderer(expectedDocument, 0, environment), 0, markerColor, true);
 	}
 
-	private void addExtraPages(final PDDocument document, final PDFRenderer pdfRenderer, final int minPageCount,
-			final int color, final boolean expected) throws IOException {
-		for (int pageIndex = minPageCount; pageIndex < document.getNumberOfPages(); pageIndex++) {
-			val image = renderPageAsImage(document, pdfRenderer, pageIndex, environment);
+	private void addExtraPages(final DocumentRenderer renderer, final int minPageCount, final int color,
+			final boolean expected) throws IOException {
+		for (int pageIndex = minPageCount; pageIndex < renderer.getDocument().getNumberOfPages(); pageIndex++) {
+			val image = renderer.renderUnshared(pageIndex);
 			val dataBuffer = image.bufferedImage.getRaster().getDataBuffer();
 			for (int i = 0; i < image.bufferedImage.getWidth() * MARKER_WIDTH; i++) {
 				dataBuffer.setElem(i, color);
@@ -440,9 +749,9 @@ public class PdfComparator<T extends CompareResultImpl> {
 				}
 			}
 			if (expected) {
-				compareResult.addPage(new PageDiffCalculator(true, false), pageIndex, image, blank(image), image);
+				resultCollector.addPage(new PageDiffCalculator(true, false), pageIndex, image, blank(image), image);
 			} else {
-				compareResult.addPage(new PageDiffCalculator(true, false), pageIndex, blank(image), image, image);
+				resultCollector.addPage(new PageDiffCalculator(true, false), pageIndex, blank(image), image, image);
 			}
 		}
 	}
@@ -454,7 +763,10 @@ public class PdfComparator<T extends CompareResultImpl> {
 
 	public static ImageWithDimension renderPageAsImage(final PDDocument document, final PDFRenderer expectedPdfRenderer,
 			final int pageIndex, final Environment environment) throws IOException {
+		final Object event = FlightRecorderEvents.beginRender();
 		val bufferedImage = expectedPdfRenderer.renderImageWithDPI(pageIndex, environment.getDPI());
+		FlightRecorderEvents.endRender(event, pageIndex, bufferedImage.getWidth(), bufferedImage.getHeight(),
+				environment.getDPI());
 		val page = document.getPage(pageIndex);
 		val mediaBox = page.getMediaBox();
 		if (page.getRotation() == 90 || page.getRotation() == 270)
@@ -463,6 +775,13 @@ public class PdfComparator<T extends CompareResultImpl> {
 			return new ImageWithDimension(bufferedImage, mediaBox.getWidth(), mediaBox.getHeight());
 	}
 
+	@Value
+	private static class DiffKey {
+		int expectedPage;
+		int actualPage;
+		PageExclusions exclusions;
+	}
+
 	public T getResult() {
 		return compareResult;
 	}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A MetricsListener, that sums up the measurements of all comparisons it is
+ * registered with. The global instance is registered as a JMX MXBean under
+ * {@value #OBJECT_NAME}.
+ *
+ * <pre>
+ * new PdfComparator("expected.pdf", "actual.pdf").withMetrics(PipelineMetrics.global()).compare();
+ * </pre>
+ */
+public class PipelineMetrics implements MetricsListener, PipelineMetricsMXBean {
+
+	public static final String OBJECT_NAME = "de.redsix.pdfcompare:type=PipelineMetrics";
+
+	private static final Logger LOG = LoggerFactory.getLogger(PipelineMetrics.class);
+	private static final PipelineMetrics GLOBAL = register(new PipelineMetrics());
+
+	private final ConcurrentMap<String, AtomicLong> stageCounts = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> stageNanos = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> stageMaxNanos = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> maxQueueDepths = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> blockedNanos = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> cacheHits = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> cacheAccesses = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong bytesSwapped = new AtomicLong();
+
+	public static PipelineMetrics global() {
+		return GLOBAL;
+	}
+
+	@Override
+	public void stageFinished(final Stage stage, final int pageIndex, final long nanos) {
+		counter(stageCounts, stage.name()).incrementAndGet();
+		counter(stageNanos, stage.name()).addAndGet(nanos);
+		max(counter(stageMaxNanos, stage.name()), nanos);
+	}
+
+	@Override
+	public void queueDepth(final String executor, final int depth) {
+		max(counter(maxQueueDepths, executor), depth);
+	}
+
+	@Override
+	public void blocked(final String executor, final long nanos) {
+		counter(blockedNanos, executor).addAndGet(nanos);
+	}
+
+	@Override
+	public void swapped(final long bytes) {
+		bytesSwapped.addAndGet(bytes);
+	}
+
+	@Override
+	public void cacheAccess(final String cache, final boolean hit) {
+		counter(cacheAccesses, cache).incrementAndGet();
+		if (hit) {
+			counter(cacheHits, cache).incrementAndGet();
+		}
+	}
+
+	@Override
+	public Map<String, Long> getStageCounts() {
+		return snapshot(stageCounts, 1);
+	}
+
+	@Override
+	public Map<String, Long> getStageTotalMillis() {
+		return snapshot(stageNanos, TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	@Override
+	public Map<String, Long> getStageMaxMillis() {
+		return snapshot(stageMaxNanos, TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	@Override
+	public Map<String, Integer> getMaxQueueDepths() {
+		final Map<String, Integer> result = new TreeMap<String, Integer>();
+		for (final Entry<String, AtomicLong> entry : maxQueueDepths.entrySet()) {
+			result.put(entry.getKey(), (int) entry.getValue().get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getBlockedMillis() {
+		return snapshot(blockedNanos, TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	@Override
+	public long getBytesSwapped() {
+		return bytesSwapped.get();
+	}
+
+	@Override
+	public Map<String, Double> getCacheHitRates() {
+		final Map<String, Double> result = new TreeMap<String, Double>();
+		for (final Entry<String, AtomicLong> entry : cacheAccesses.entrySet()) {
+			final AtomicLong hits = cacheHits.get(entry.getKey());
+			result.put(entry.getKey(), (hits == null ? 0 : hits.get()) / (double) entry.getValue().get());
+		}
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		stageCounts.clear();
+		stageNanos.clear();
+		stageMaxNanos.clear();
+		maxQueueDepths.clear();
+		blockedNanos.clear();
+		cacheHits.clear();
+		cacheAccesses.clear();
+		bytesSwapped.set(0);
+	}
+
+	private static AtomicLong counter(final ConcurrentMap<String, AtomicLong> counters, final String key) {
+		final AtomicLong counter = counters.get(key);
+		if (counter != null) {
+			return counter;
+		}
+		final AtomicLong created = new AtomicLong();
+		final AtomicLong existing = counters.putIfAbsent(key, created);
+		return existing != null ? existing : created;
+	}
+
+	private static void max(final AtomicLong max, final long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	private static Map<String, Long> snapshot(final Map<String, AtomicLong> counters, final long divisor) {
+		final Map<String, Long> result = new TreeMap<String, Long>();
+		for (final Entry<String, AtomicLong> entry : counters.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().get() / divisor);
+		}
+		return result;
+	}
+
+	private static PipelineMetrics register(final PipelineMetrics metrics) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+		} catch (Exception e) {
+			LOG.debug("Could not register MBean {}", OBJECT_NAME, e);
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link PipelineMetrics}. Maps are keyed by stage, executor or
+ * cache name.
+ */
+public interface PipelineMetricsMXBean {
+
+	Map<String, Long> getStageCounts();
+
+	Map<String, Long> getStageTotalMillis();
+
+	Map<String, Long> getStageMaxMillis();
+
+	Map<String, Integer> getMaxQueueDepths();
+
+	Map<String, Long> getBlockedMillis();
+
+	long getBytesSwapped();
+
+	Map<String, Double> getCacheHitRates();
+
+	void reset();
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the bytes of all page images, that CompareResults hold on to in the
+ * java heap, across all comparisons running in this JVM. The size of an image
+ * is calculated exactly from the size of its pixel data.
+ *
+ * Only the CompareResults, that use this budget to decide when to move their
+ * images out of the heap, are charged. They release their images, when they are
+ * written or closed. What a CompareResult still holds, when it is garbage
+ * collected, is released then. The budget defaults to 50% of
+ * Runtime.maxMemory() and is registered as a JMX MBean under
+ * {@value #OBJECT_NAME}.
+ */
+public class RasterMemoryBudget implements RasterMemoryBudgetMBean {
+
+	public static final String OBJECT_NAME = "de.redsix.pdfcompare:type=RasterMemoryBudget";
+	private static final Logger LOG = LoggerFactory.getLogger(RasterMemoryBudget.class);
+	private static final RasterMemoryBudget GLOBAL = register(
+			new RasterMemoryBudget(Runtime.getRuntime().maxMemory() / 2));
+
+	private final AtomicLong usedBytes = new AtomicLong();
+	private final AtomicLong peakBytes = new AtomicLong();
+	private volatile long limitBytes;
+	private final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<Object>();
+	private final Set<Charge> charges = Collections.newSetFromMap(new ConcurrentHashMap<Charge, Boolean>());
+
+	public RasterMemoryBudget(final long limitBytes) {
+		this.limitBytes = limitBytes;
+	}
+
+	/**
+	 * @return the budget shared by all CompareResults in this JVM
+	 */
+	public static RasterMemoryBudget global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * @param image an image
+	 * @return the number of bytes the pixel data of the image occupies
+	 */
+	public static long sizeOf(final ImageWithDimension image) {
+		return sizeOf(image.bufferedImage);
+	}
+
+	/**
+	 * @param image an image
+	 * @return the number of bytes the pixel data of the image occupies
+	 */
+	public static long sizeOf(final BufferedImage image) {
+		final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+		return (long) dataBuffer.getSize() * dataBuffer.getNumBanks()
+				* DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+	}
+
+	/**
+	 * Starts charging the images of an owner. Bytes, that the owner did not
+	 * release, are released, once the owner was garbage collected.
+	 *
+	 * @param owner the object holding the images
+	 * @return the charge to allocate and release the bytes of the owner with
+	 */
+	public Charge chargeFor(final Object owner) {
+		releaseCollectedOwners();
+		final Charge charge = new Charge(owner);
+		charges.add(charge);
+		return charge;
+	}
+
+	private void releaseCollectedOwners() {
+		Reference<?> reference;
+		while ((reference = collectedOwners.poll()) != null) {
+			final Charge charge = (Charge) reference;
+			charges.remove(charge);
+			release(charge.bytes.getAndSet(0));
+		}
+	}
+
+	public void allocate(final long bytes) {
+		releaseCollectedOwners();
+		final long used = usedBytes.addAndGet(bytes);
+		long peak = peakBytes.get();
+		while (used > peak && !peakBytes.compareAndSet(peak, used)) {
+			peak = peakBytes.get();
+		}
+	}
+
+	public void release(final long bytes) {
+		usedBytes.addAndGet(-bytes);
+	}
+
+	/**
+	 * @return true, when more bytes are used than the limit allows.
+	 */
+	public boolean isExceeded() {
+		releaseCollectedOwners();
+		return usedBytes.get() >= limitBytes;
+	}
+
+	@Override
+	public long getUsedBytes() {
+		releaseCollectedOwners();
+		return usedBytes.get();
+	}
+
+	@Override
+	public long getPeakBytes() {
+		return peakBytes.get();
+	}
+
+	@Override
+	public long getLimitBytes() {
+		return limitBytes;
+	}
+
+	@Override
+	public void setLimitBytes(final long limitBytes) {
+		this.limitBytes = limitBytes;
+	}
+
+	private static RasterMemoryBudget register(final RasterMemoryBudget budget) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(budget, new ObjectName(OBJECT_NAME));
+		} catch (Exception e) {
+			LOG.debug("Could not register MBean {}", OBJECT_NAME, e);
+		}
+		return budget;
+	}
+
+	/**
+	 * The bytes charged for one owner. It does not refer to the owner, so the owner
+	 * can be garbage collected, while it is charged.
+	 */
+	public class Charge extends PhantomReference<Object> {
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private Charge(final Object owner) {
+			super(owner, collectedOwners);
+		}
+
+		public void allocate(final long bytes) {
+			this.bytes.addAndGet(bytes);
+			RasterMemoryBudget.this.allocate(bytes);
+		}
+
+		public void release(final long bytes) {
+			this.bytes.addAndGet(-bytes);
+			RasterMemoryBudget.this.release(bytes);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.redsix.pdfcompare.env.Environment;
+
+/**
+ * Keeps raw page images outside of the java heap. Images are copied into direct
+ * ByteBuffers, as long as the swapCacheSize from the Environment is not
+ * exceeded. Beyond that, images are written into a memory mapped file in a
+ * temporary directory. The space of images taken from the spill file is reused
+ * for later images and the file shrinks, when its end is no longer used. The
+ * mapping of an image is dropped, when the image is taken, so it is unmapped,
+ * when it is garbage collected.
+ *
+ * Images are stored uncompressed with 4 bytes per pixel, so storing and
+ * restoring an image is a plain memory copy. A single image can't exceed
+ * {@link Integer#MAX_VALUE} bytes.
+ */
+public class RasterStore implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RasterStore.class);
+	private static final int BYTES_PER_PIXEL = 4;
+	private final long directCapacity;
+	private final Map<Integer, StoredImage> images = new TreeMap<Integer, StoredImage>();
+	private long directBytes;
+	private final TreeMap<Long, Long> freeSpillSpace = new TreeMap<Long, Long>();
+	private long spilledBytes;
+	private long spillFileLength;
+	private File tempDir;
+	private RandomAccessFile spillFile;
+	private FileChannel spillChannel;
+
+	public RasterStore(final Environment environment) {
+		this.directCapacity = environment.getSwapCacheSize();
+	}
+
+	/**
+	 * Copies the image out of the heap.
+	 *
+	 * @param pageIndex the page starting with 0
+	 * @param image the image to store
+	 * @throws IOException when the spill file can't be written
+	 * @throws IllegalArgumentException when the image needs more than
+	 * {@link Integer#MAX_VALUE} bytes
+	 */
+	public synchronized void put(final int pageIndex, final ImageWithDimension image) throws IOException {
+		final BufferedImage bufferedImage = image.bufferedImage;
+		final int width = bufferedImage.getWidth();
+		final int height = bufferedImage.getHeight();
+		final boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
+		final long size = (long) width * height * BYTES_PER_PIXEL;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"The image of page " + (pageIndex + 1) + " with " + width + "x" + height + " pixels needs " + size
+							+ " bytes, but at most " + Integer.MAX_VALUE + " bytes can be stored for a single image");
+		}
+		final ByteBuffer buffer;
+		final boolean direct = directBytes + size <= directCapacity;
+		final long offset;
+		if (direct) {
+			buffer = ByteBuffer.allocateDirect((int) size);
+			offset = -1;
+			directBytes += size;
+		} else {
+			final FileChannel channel = getSpillChannel();
+			offset = allocateSpillSpace(size);
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+			} catch (IOException e) {
+				freeSpillSpace(offset, size);
+				throw e;
+			}
+			spilledBytes += size;
+		}
+		buffer.asIntBuffer().put(pixels(bufferedImage));
+		final StoredImage previous = images.put(pageIndex,
+				new StoredImage(buffer, direct, offset, width, height, hasAlpha, image.width, image.height));
+		if (previous != null) {
+			release(previous);
+		}
+		LOG.trace("Stored page {} {}", pageIndex, direct ? "in direct memory" : "in spill file");
+	}
+
+	/**
+	 * Restores an image into the heap and removes it from this store.
+	 *
+	 * @param pageIndex the page starting with 0
+	 * @return the restored image or null, when no image is stored for the page
+	 */
+	public synchronized ImageWithDimension take(final int pageIndex) {
+		final StoredImage stored = images.remove(pageIndex);
+		if (stored == null) {
+			return null;
+		}
+		final BufferedImage image = new BufferedImage(stored.width, stored.height,
+				stored.hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		final IntBuffer pixels = stored.buffer.asIntBuffer();
+		pixels.get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+		release(stored);
+		return new ImageWithDimension(image, stored.pageWidth, stored.pageHeight);
+	}
+
+	public synchronized Set<Integer> getPages() {
+		return new TreeSet<Integer>(images.keySet());
+	}
+
+	public synchronized boolean isEmpty() {
+		return images.isEmpty();
+	}
+
+	/**
+	 * @return the bytes currently held in direct memory
+	 */
+	public synchronized long getDirectBytes() {
+		return directBytes;
+	}
+
+	/**
+	 * @return the bytes of the images currently held in the spill file
+	 */
+	public synchronized long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	/**
+	 * @return the length of the spill file including the space of images, that were
+	 * taken and not yet reused
+	 */
+	public synchronized long getSpillFileLength() {
+		return spillFileLength;
+	}
+
+	/**
+	 * Drops all stored images and removes the spill file.
+	 */
+	@Override
+	public synchronized void close() {
+		images.clear();
+		directBytes = 0;
+		spilledBytes = 0;
+		spillFileLength = 0;
+		freeSpillSpace.clear();
+		if (spillFile != null) {
+			try {
+				spillFile.close();
+			} catch (IOException e) {
+				LOG.warn("Error closing spill file", e);
+			}
+			spillFile = null;
+			spillChannel = null;
+		}
+		if (tempDir != null) {
+			FileUtils.removeTempDir(tempDir);
+			tempDir = null;
+		}
+	}
+
+	private void release(final StoredImage stored) {
+		if (stored.direct) {
+			directBytes -= stored.buffer.capacity();
+		} else {
+			spilledBytes -= stored.buffer.capacity();
+			freeSpillSpace(stored.offset, stored.buffer.capacity());
+		}
+	}
+
+	private long allocateSpillSpace(final long size) {
+		for (final Map.Entry<Long, Long> free : freeSpillSpace.entrySet()) {
+			final long offset = free.getKey();
+			final long length = free.getValue();
+			if (length >= size) {
+				freeSpillSpace.remove(offset);
+				if (length > size) {
+					freeSpillSpace.put(offset + size, length - size);
+				}
+				return offset;
+			}
+		}
+		final long offset = spillFileLength;
+		spillFileLength += size;
+		return offset;
+	}
+
+	private void freeSpillSpace(final long offset, final long size) {
+		long start = offset;
+		long length = size;
+		final Map.Entry<Long, Long> before = freeSpillSpace.floorEntry(start);
+		if (before != null && before.getKey() + before.getValue() == start) {
+			freeSpillSpace.remove(before.getKey());
+			start = before.getKey();
+			length += before.getValue();
+		}
+		final Long after = freeSpillSpace.remove(start + length);
+		if (after != null) {
+			length += after;
+		}
+		if (start + length == spillFileLength) {
+			spillFileLength = start;
+			try {
+				spillChannel.truncate(spillFileLength);
+			} catch (IOException e) {
+				LOG.debug("Could not shrink spill file", e);
+			}
+		} else {
+			freeSpillSpace.put(start, length);
+		}
+	}
+
+	private FileChannel getSpillChannel() throws IOException {
+		if (spillChannel == null) {
+			tempDir = FileUtils.createTempDir("PdfCompare");
+			spillFile = new RandomAccessFile(new File(tempDir, "rasters.bin"), "rw");
+			spillChannel = spillFile.getChannel();
+		}
+		return spillChannel;
+	}
+
+	private static int[] pixels(final BufferedImage image) {
+		final int type = image.getType();
+		if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+				&& image.getRaster().getDataBuffer() instanceof DataBufferInt
+				&& image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()) {
+			return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	private static class StoredImage {
+
+		private final ByteBuffer buffer;
+		private final boolean direct;
+		private final long offset;
+		private final int width;
+		private final int height;
+		private final boolean hasAlpha;
+		private final float pageWidth;
+		private final float pageHeight;
+
+		StoredImage(final ByteBuffer buffer, final boolean direct, final long offset, final int width, final int height,
+				final boolean hasAlpha, final float pageWidth, final float pageHeight) {
+			this.buffer = buffer;
+			this.direct = direct;
+			this.offset = offset;
+			this.width = width;
+			this.height = height;
+			this.hasAlpha = hasAlpha;
+			this.pageWidth = pageWidth;
+			this.pageHeight = pageHeight;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the memory used by pages, that are rendered and diffed at the same
+ * time, across all comparisons running in this JVM. Before a page is rendered,
+ * the size of its images is reserved. When the reservation does not fit into
+ * the capacity, the rendering thread waits until other pages release their
+ * reservations. A reservation larger than the whole capacity is admitted, when
+ * nothing else is reserved, so a single big page can't block forever.
+ *
+ * Caches of rendered pages and diffs reserve their bytes as well, but only when
+ * they fit right away. Before a rendering thread waits, cached values are
+ * evicted to make room, so cached pages never hold back pages in flight.
+ *
+ * The capacity defaults to 30% of Runtime.maxMemory() and is registered as a
+ * JMX MBean under {@value #OBJECT_NAME}.
+ */
+public class RenderAdmission implements RenderAdmissionMBean {
+
+	public static final String OBJECT_NAME = "de.redsix.pdfcompare:type=RenderAdmission";
+	private static final Logger LOG = LoggerFactory.getLogger(RenderAdmission.class);
+	private static final RenderAdmission GLOBAL = register(
+			new RenderAdmission(Runtime.getRuntime().maxMemory() * 3 / 10));
+
+	private long capacityBytes;
+	private long reservedBytes;
+	private int waitingReservations;
+	private final Set<Evictable> caches = new LinkedHashSet<Evictable>();
+
+	public RenderAdmission(final long capacityBytes) {
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * @return the admission shared by all comparisons in this JVM
+	 */
+	public static RenderAdmission global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Reserves the given amount of bytes and waits, until they fit into the
+	 * capacity.
+	 *
+	 * @param bytes the bytes to reserve
+	 * @return the reservation, that has to be released exactly once
+	 * @throws InterruptedException when the thread is interrupted while waiting
+	 */
+	public Reservation reserve(final long bytes) throws InterruptedException {
+		final long missingBytes;
+		synchronized (this) {
+			if (fits(bytes)) {
+				reservedBytes += bytes;
+				return new Reservation(bytes);
+			}
+			missingBytes = reservedBytes + bytes - capacityBytes;
+			++waitingReservations;
+		}
+		try {
+			evict(missingBytes);
+			return awaitReservation(bytes);
+		} finally {
+			synchronized (this) {
+				--waitingReservations;
+			}
+		}
+	}
+
+	private synchronized Reservation awaitReservation(final long bytes) throws InterruptedException {
+		if (!fits(bytes)) {
+			LOG.trace("Waiting to reserve {} bytes. {} of {} bytes are reserved.", bytes, reservedBytes, capacityBytes);
+			while (!fits(bytes)) {
+				wait();
+			}
+		}
+		reservedBytes += bytes;
+		return new Reservation(bytes);
+	}
+
+	/**
+	 * Reserves the given amount of bytes, when they fit into the capacity right
+	 * away and no other reservation is waiting.
+	 *
+	 * @param bytes the bytes to reserve
+	 * @return the reservation, that has to be released exactly once, or null, when
+	 * the bytes don't fit
+	 */
+	public synchronized Reservation tryReserve(final long bytes) {
+		if (waitingReservations > 0 || reservedBytes + bytes > capacityBytes) {
+			return null;
+		}
+		reservedBytes += bytes;
+		return new Reservation(bytes);
+	}
+
+	/**
+	 * Registers a cache, that holds reservations and gives them back on demand.
+	 *
+	 * @param cache the cache to evict from, when a reservation has to wait
+	 */
+	void register(final Evictable cache) {
+		synchronized (caches) {
+			caches.add(cache);
+		}
+	}
+
+	void unregister(final Evictable cache) {
+		synchronized (caches) {
+			caches.remove(cache);
+		}
+	}
+
+	/**
+	 * Asks the registered caches to release at least the given number of bytes. The
+	 * caches are called without holding the lock of this admission.
+	 */
+	private void evict(final long bytes) {
+		final List<Evictable> registered;
+		synchronized (caches) {
+			registered = new ArrayList<Evictable>(caches);
+		}
+		long evicted = 0;
+		for (final Evictable cache : registered) {
+			if (evicted >= bytes) {
+				break;
+			}
+			evicted += cache.evict(bytes - evicted);
+		}
+		if (evicted > 0) {
+			LOG.trace("Evicted {} cached bytes to make room for a reservation", evicted);
+		}
+	}
+
+	private boolean fits(final long bytes) {
+		return reservedBytes == 0 || reservedBytes + bytes <= capacityBytes;
+	}
+
+	private synchronized void release(final long bytes) {
+		reservedBytes -= bytes;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	@Override
+	public synchronized long getCapacityBytes() {
+		return capacityBytes;
+	}
+
+	@Override
+	public synchronized void setCapacityBytes(final long capacityBytes) {
+		this.capacityBytes = capacityBytes;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized int getWaitingReservations() {
+		return waitingReservations;
+	}
+
+	private static RenderAdmission register(final RenderAdmission admission) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(admission, new ObjectName(OBJECT_NAME));
+		} catch (Exception e) {
+			LOG.debug("Could not register MBean {}", OBJECT_NAME, e);
+		}
+		return admission;
+	}
+
+	/**
+	 * A cache, whose values hold reservations and can be dropped, when the memory
+	 * is needed for pages in flight.
+	 */
+	public interface Evictable {
+
+		/**
+		 * Drops cached values and releases their reservations.
+		 *
+		 * @param bytes the number of bytes, that should be released
+		 * @return the number of bytes actually released
+		 */
+		long evict(long bytes);
+	}
+
+	/**
+	 * Bytes reserved through {@link RenderAdmission#reserve(long)}.
+	 */
+	public class Reservation {
+
+		private final long bytes;
+		private boolean released;
+
+		private Reservation(final long bytes) {
+			this.bytes = bytes;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Gives the reserved bytes back. Further calls have no effect.
+		 */
+		public void release() {
+			synchronized (RenderAdmission.this) {
+				if (!released) {
+					released = true;
+					RenderAdmission.this.release(bytes);
+				}
+			}
+		}
+	}
+}
@@ -48,17 +48,23 @@ public class ResourceCacheWithLimitedImages extends DefaultResourceCache {
 		}
 	};
 
+	private final MetricsListener metrics;
+
 	public ResourceCacheWithLimitedImages(Environment environment) {
+		this(environment, MetricsListener.NONE);
+	}
+
+	public ResourceCacheWithLimitedImages(Environment environment, MetricsListener metrics) {
 		this.environment = environment;
+		this.metrics = metrics;
 	}
 
 	@Override
 	public PDXObject getXObject(COSObject indirect) throws IOException {
 		SoftReference<PDXObject> xobject = this.xobjects.get(indirect);
-		if (xobject != null) {
-			return xobject.get();
-		}
-		return null;
+		final PDXObject cached = xobject != null ? xobject.get() : null;
+		metrics.cacheAccess("xobjects", cached != null);
+		return cached;
 	}
 
 	@Override
@@ -21,6 +21,13 @@ public interface ResultCollector {
 	void addPage(PageDiffCalculator diffCalculator, int pageIndex, ImageWithDimension expectedImage,
 			ImageWithDimension actualImage, ImageWithDimension diffImage);
 
+	/**
+	 * Called instead of addPage for a page, that could not be rendered.
+	 *
+	 * @param pageIndex the index of the page starting with 0
+	 */
+	void pageFailed(int pageIndex);
+
 	void noPagesFound();
 
 	void done();
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Records a timeline of one comparison and writes it in the Chrome trace event
+ * format, which can be opened in chrome://tracing or https://ui.perfetto.dev.
+ * <p>
+ * Every stage becomes a span on the thread, that executed it, labeled with its
+ * page. The time threads were blocked by a full executor queue becomes a span
+ * as well, and the depths of the executor queues and the swapped bytes become
+ * counters. So idle pools and waiting pages are visible next to each other.
+ * <p>
+ * Register a new TimelineTracer per comparison with
+ * {@link PdfComparator#withMetrics(MetricsListener)}. When the result is
+ * written to a file or directory, the trace is written next to it, see
+ * {@link #TRACE_FILE_SUFFIX}. It can also be written explicitly with
+ * {@link #writeTo(File)}. All measurements are passed on to the listener given
+ * to the constructor, so it can be combined with {@link PipelineMetrics}.
+ */
+public class TimelineTracer implements MetricsListener {
+
+	/**
+	 * Appended to the filename, that a result PDF is written to. When images are
+	 * written to a directory, the trace is written as {@code trace.json} into it.
+	 */
+	public static final String TRACE_FILE_SUFFIX = ".trace.json";
+
+	private final MetricsListener next;
+	private final long origin = System.nanoTime();
+	private final ConcurrentLinkedQueue<String> events = new ConcurrentLinkedQueue<String>();
+	private final ConcurrentMap<Long, String> threadNames = new ConcurrentHashMap<Long, String>();
+	private final AtomicLong swappedBytes = new AtomicLong();
+
+	public TimelineTracer() {
+		this(MetricsListener.NONE);
+	}
+
+	/**
+	 * @param next receives all measurements after they were recorded
+	 */
+	public TimelineTracer(final MetricsListener next) {
+		notNull(next, "next is null");
+		this.next = next;
+	}
+
+	@Override
+	public void stageFinished(final Stage stage, final int pageIndex, final long nanos) {
+		final long end = System.nanoTime();
+		final String name = pageIndex < 0 ? stage.name() : stage.name() + " page " + (pageIndex + 1);
+		span(name, "stage", end - nanos, nanos, pageIndex < 0 ? "" : ", \"args\": {\"page\": " + (pageIndex + 1) + "}");
+		next.stageFinished(stage, pageIndex, nanos);
+	}
+
+	@Override
+	public void queueDepth(final String executor, final int depth) {
+		counter(executor + " queue", System.nanoTime(), "depth", depth);
+		next.queueDepth(executor, depth);
+	}
+
+	@Override
+	public void blocked(final String executor, final long nanos) {
+		final long end = System.nanoTime();
+		span("blocked on " + executor + " queue", "wait", end - nanos, nanos,
+				", \"args\": {\"executor\": \"" + escape(executor) + "\"}");
+		next.blocked(executor, nanos);
+	}
+
+	@Override
+	public void swapped(final long bytes) {
+		counter("swapped", System.nanoTime(), "bytes", swappedBytes.addAndGet(bytes));
+		next.swapped(bytes);
+	}
+
+	@Override
+	public void cacheAccess(final String cache, final boolean hit) {
+		next.cacheAccess(cache, hit);
+	}
+
+	/**
+	 * @return the number of recorded spans and counter values
+	 */
+	public int getEventCount() {
+		return events.size();
+	}
+
+	/**
+	 * Writes the events recorded so far.
+	 *
+	 * @param file the file to write, usually ending with .json
+	 * @throws IOException when the file can't be written
+	 */
+	public void writeTo(final File file) throws IOException {
+		@Cleanup
+		val writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		writeTo(writer);
+	}
+
+	/**
+	 * Writes the events recorded so far. The writer is not closed.
+	 *
+	 * @param writer receives the trace as JSON
+	 * @throws IOException when writing fails
+	 */
+	public void writeTo(final Writer writer) throws IOException {
+		final List<String> lines = new ArrayList<String>();
+		lines.add("{\"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, \"args\": {\"name\": \"PdfCompare\"}}");
+		for (final Entry<Long, String> thread : threadNames.entrySet()) {
+			lines.add("{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " + thread.getKey()
+					+ ", \"args\": {\"name\": \"" + escape(thread.getValue()) + "\"}}");
+		}
+		lines.addAll(events);
+		writer.write("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+		String separator = "\n";
+		for (final String line : lines) {
+			writer.write(separator + "  " + line);
+			separator = ",\n";
+		}
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+
+	private void span(final String name, final String category, final long start, final long nanos, final String args) {
+		events.add("{\"name\": \"" + name + "\", \"cat\": \"" + category + "\", \"ph\": \"X\", \"pid\": 1, \"tid\": "
+				+ currentThread() + ", \"ts\": " + micros(start - origin) + ", \"dur\": " + micros(nanos) + args + "}");
+	}
+
+	private void counter(final String name, final long time, final String key, final long value) {
+		events.add("{\"name\": \"" + escape(name) + "\", \"ph\": \"C\", \"pid\": 1, \"ts\": " + micros(time - origin)
+				+ ", \"args\": {\"" + key + "\": " + value + "}}");
+	}
+
+	private long currentThread() {
+		final Thread thread = Thread.currentThread();
+		final long id = thread.getId();
+		if (!threadNames.containsKey(id)) {
+			threadNames.putIfAbsent(id, thread.getName());
+		}
+		return id;
+	}
+
+	private static String micros(final long nanos) {
+		final long abs = Math.abs(nanos);
+		final long fraction = abs % 1000;
+		return (nanos < 0 ? "-" : "") + abs / 1000 + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
+	}
+
+	private static String escape(final String s) {
+		return StringEscapeUtils.escapeJson(s);
+	}
+}
@@ -75,21 +75,63 @@ public class Utilities {
 
 	public static ExecutorService blockingExecutor(final String name, int coreThreads, int maxThreads,
 			int queueCapacity, Environment environment) {
-		if (environment.useParallelProcessing()) {
-			return new ThreadPoolExecutor(coreThreads, maxThreads, 3, TimeUnit.MINUTES,
-					new LinkedBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory(name),
-					new BlockingHandler());
-		} else {
-			return new InThreadExecutorService();
-		}
+		return blockingExecutor(name, coreThreads, maxThreads, queueCapacity, environment, MetricsListener.NONE);
 	}
 
 	public static ExecutorService blockingExecutor(final String name, int threads, int queueCapacity,
 			Environment environment) {
+		return blockingExecutor(name, threads, threads, queueCapacity, environment, MetricsListener.NONE);
+	}
+
+	/**
+	 * Like {@link #blockingExecutor(String, int, int, int, Environment)}, but
+	 * reports the depth of the queue after each added task and the time threads
+	 * were blocked, because the queue was full.
+	 */
+	public static ExecutorService blockingExecutor(final String name, int coreThreads, int maxThreads,
+			int queueCapacity, Environment environment, final MetricsListener metrics) {
+		return blockingExecutor(name, coreThreads, maxThreads, queueCapacity, environment, metrics,
+				new NamedThreadFactory(name));
+	}
+
+	/**
+	 * Like
+	 * {@link #blockingExecutor(String, int, int, int, Environment, MetricsListener)},
+	 * for stages, that mostly wait for other stages or for I/O. On Java 21 and
+	 * newer their threads are virtual threads, unless the Environment disables it.
+	 * The number of threads and the capacity of the queue are bounded the same way.
+	 */
+	public static ExecutorService blockingIoExecutor(final String name, int coreThreads, int maxThreads,
+			int queueCapacity, Environment environment, final MetricsListener metrics) {
+		return blockingExecutor(name, coreThreads, maxThreads, queueCapacity, environment, metrics,
+				ioThreadFactory(name, environment));
+	}
+
+	/**
+	 * @return a factory for virtual threads, when they are supported and enabled,
+	 * otherwise a factory for platform threads
+	 */
+	static ThreadFactory ioThreadFactory(final String name, final Environment environment) {
+		if (environment.useVirtualThreads() && VirtualThreads.isSupported()) {
+			return VirtualThreads.newThreadFactory(name);
+		}
+		return new NamedThreadFactory(name);
+	}
+
+	private static ExecutorService blockingExecutor(final String name, int coreThreads, int maxThreads,
+			int queueCapacity, Environment environment, final MetricsListener metrics,
+			final ThreadFactory threadFactory) {
 		if (environment.useParallelProcessing()) {
-			return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MINUTES,
-					new LinkedBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory(name),
-					new BlockingHandler());
+			return new ThreadPoolExecutor(coreThreads, maxThreads, maxThreads > coreThreads ? 3 : 0, TimeUnit.MINUTES,
+					new LinkedBlockingQueue<Runnable>(queueCapacity), threadFactory,
+					new BlockingHandler(name, metrics)) {
+
+				@Override
+				public void execute(final Runnable command) {
+					super.execute(command);
+					metrics.queueDepth(name, getQueue().size());
+				}
+			};
 		} else {
 			return new InThreadExecutorService();
 		}
@@ -98,9 +140,18 @@ public class Utilities {
 	public static void shutdownAndAwaitTermination(final ExecutorService executor, final String executorName) {
 		if (executor != null) {
 			executor.shutdown();
+			awaitTermination(executor, executorName, 15, TimeUnit.MINUTES);
+		}
+	}
+
+	/**
+	 * Waits at most for the given time, until an executor, that was shut down,
+	 * finished its running tasks.
+	 */
+	public static void awaitTermination(final ExecutorService executor, final String executorName, final long timeout,
+			final TimeUnit unit) {
+		if (executor != null) {
 			try {
-				final int timeout = 15;
-				final TimeUnit unit = TimeUnit.MINUTES;
 				if (!executor.awaitTermination(timeout, unit)) {
 					LOG.error("Awaiting Shutdown of Executor '{}' timed out after {} {}", executorName, timeout, unit);
 				}
@@ -111,16 +162,25 @@ public class Utilities {
 		}
 	}
 
-	public static void await(final CountDownLatch latch, final String latchName, Environment environment) {
+	/**
+	 * Waits for the latch at most for the overall timeout of the environment.
+	 *
+	 * @return true, when the latch was counted down, false when the timeout was
+	 * exceeded or the thread was interrupted
+	 */
+	public static boolean await(final CountDownLatch latch, final String latchName, Environment environment) {
 		try {
 			final int timeout = environment.getOverallTimeout();
 			final TimeUnit unit = TimeUnit.MINUTES;
 			if (!latch.await(timeout, unit)) {
 				LOG.error("Awaiting Latch '{}' timed out after {} {}", latchName, timeout, unit);
+				return false;
 			}
+			return true;
 		} catch (InterruptedException e) {
 			LOG.warn("Awaiting Latch '{}' was interrupted", latchName);
 			Thread.currentThread().interrupt();
+			return false;
 		}
 	}
 
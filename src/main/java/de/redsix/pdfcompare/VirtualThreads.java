@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads.
+ * <p>
+ * This is the baseline implementation for JVMs without virtual threads. On Java
+ * 21 and newer the multi-release jar provides an implementation from
+ * {@code META-INF/versions/21}. Both implementations must keep the same
+ * signatures.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	static boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * @param name the prefix of the names of the threads
+	 * @return a factory for virtual threads
+	 * @throws UnsupportedOperationException when virtual threads are not supported
+	 */
+	static ThreadFactory newThreadFactory(final String name) {
+		throw new UnsupportedOperationException("Virtual threads need Java 21 or newer");
+	}
+}
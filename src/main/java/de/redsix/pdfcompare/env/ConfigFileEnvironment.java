@@ -85,11 +85,26 @@ public class ConfigFileEnvironment implements Environment {
 		return config.getInt("overallTimeoutInMinutes");
 	}
 
+	@Override
+	public int getPageTimeout() {
+		return config.getInt("pageTimeoutInSeconds");
+	}
+
 	@Override
 	public boolean useParallelProcessing() {
 		return config.getBoolean("parallelProcessing");
 	}
 
+	@Override
+	public boolean useVirtualThreads() {
+		return config.getBoolean("virtualThreads");
+	}
+
+	@Override
+	public boolean useAdaptiveConcurrency() {
+		return config.getBoolean("adaptiveConcurrency");
+	}
+
 	@Override
 	public double getAllowedDiffInPercent() {
 		if (config.hasPath("allowedDifferenceInPercentPerPage")) {
@@ -122,6 +137,52 @@ public class ConfigFileEnvironment implements Environment {
 		return 300;
 	}
 
+	@Override
+	public boolean deduplicatePages() {
+		return config.getBoolean("deduplicatePages");
+	}
+
+	@Override
+	public boolean deduplicateOutputImages() {
+		return config.getBoolean("deduplicateOutputImages");
+	}
+
+	@Override
+	public int getOutputDPI() {
+		if (config.hasPath("outputDPI")) {
+			return config.getInt("outputDPI");
+		}
+		return getDPI();
+	}
+
+	@Override
+	public boolean useOutputPalette() {
+		return config.getBoolean("outputPalette");
+	}
+
+	@Override
+	public boolean cropOutputToDifferences() {
+		return config.getBoolean("cropOutputToDifferences");
+	}
+
+	@Override
+	public boolean writeDifferencesOnly() {
+		return config.getBoolean("differencesOnly");
+	}
+
+	@Override
+	public boolean collectDifferenceMasks() {
+		return config.getBoolean("differenceMasks");
+	}
+
+	@Override
+	public int getDiffAreaMergeDistance() {
+		if (config.hasPath("diffAreaMergeDistance")) {
+			return config.getInt("diffAreaMergeDistance");
+		}
+		return getDPI() / 6;
+	}
+
 	private int getMB(final String path) {
 		return config.getInt(path) * 1024 * 1024;
 	}
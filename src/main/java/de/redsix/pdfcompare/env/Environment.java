@@ -35,8 +35,14 @@ public interface Environment {
 
 	int getOverallTimeout();
 
+	int getPageTimeout();
+
 	boolean useParallelProcessing();
 
+	boolean useVirtualThreads();
+
+	boolean useAdaptiveConcurrency();
+
 	double getAllowedDiffInPercent();
 
 	Color getExpectedColor();
@@ -44,4 +50,20 @@ public interface Environment {
 	Color getActualColor();
 
 	int getDPI();
+
+	boolean deduplicatePages();
+
+	boolean deduplicateOutputImages();
+
+	int getOutputDPI();
+
+	boolean useOutputPalette();
+
+	boolean cropOutputToDifferences();
+
+	boolean writeDifferencesOnly();
+
+	boolean collectDifferenceMasks();
+
+	int getDiffAreaMergeDistance();
 }
@@ -51,8 +51,11 @@ public class SimpleEnvironment implements Environment {
 	private Integer maxImageSize;
 
 	private Integer overallTimeout;
+	private Integer pageTimeout;
 
 	private Boolean parallelProcessing;
+	private Boolean virtualThreads;
+	private Boolean adaptiveConcurrency;
 
 	private Double allowedDiffInPercent;
 
@@ -60,6 +63,16 @@ public class SimpleEnvironment implements Environment {
 	private Color actualColor;
 	private Integer dpi;
 
+	private Boolean deduplicatePages;
+	private Boolean deduplicateOutputImages;
+
+	private Integer outputDpi;
+	private Boolean outputPalette;
+	private Boolean cropOutputToDifferences;
+	private Boolean differencesOnly;
+	private Boolean differenceMasks;
+	private Integer diffAreaMergeDistance;
+
 	public SimpleEnvironment() {
 		this(DefaultEnvironment.create());
 	}
@@ -138,6 +151,16 @@ public class SimpleEnvironment implements Environment {
 		return this;
 	}
 
+	@Override
+	public int getPageTimeout() {
+		return pageTimeout != null ? pageTimeout : fallback.getPageTimeout();
+	}
+
+	public SimpleEnvironment setPageTimeout(int pageTimeout) {
+		this.pageTimeout = pageTimeout;
+		return this;
+	}
+
 	@Override
 	public boolean useParallelProcessing() {
 		return parallelProcessing != null ? parallelProcessing : fallback.useParallelProcessing();
@@ -148,6 +171,26 @@ public class SimpleEnvironment implements Environment {
 		return this;
 	}
 
+	@Override
+	public boolean useVirtualThreads() {
+		return virtualThreads != null ? virtualThreads : fallback.useVirtualThreads();
+	}
+
+	public SimpleEnvironment setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return this;
+	}
+
+	@Override
+	public boolean useAdaptiveConcurrency() {
+		return adaptiveConcurrency != null ? adaptiveConcurrency : fallback.useAdaptiveConcurrency();
+	}
+
+	public SimpleEnvironment setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+		this.adaptiveConcurrency = adaptiveConcurrency;
+		return this;
+	}
+
 	@Override
 	public double getAllowedDiffInPercent() {
 		return allowedDiffInPercent != null ? allowedDiffInPercent : fallback.getAllowedDiffInPercent();
@@ -187,4 +230,84 @@ public class SimpleEnvironment implements Environment {
 		return this;
 	}
 
+	@Override
+	public boolean deduplicatePages() {
+		return deduplicatePages != null ? deduplicatePages : fallback.deduplicatePages();
+	}
+
+	public SimpleEnvironment setDeduplicatePages(boolean deduplicatePages) {
+		this.deduplicatePages = deduplicatePages;
+		return this;
+	}
+
+	@Override
+	public boolean deduplicateOutputImages() {
+		return deduplicateOutputImages != null ? deduplicateOutputImages : fallback.deduplicateOutputImages();
+	}
+
+	public SimpleEnvironment setDeduplicateOutputImages(boolean deduplicateOutputImages) {
+		this.deduplicateOutputImages = deduplicateOutputImages;
+		return this;
+	}
+
+	@Override
+	public int getOutputDPI() {
+		return outputDpi != null ? outputDpi : fallback.getOutputDPI();
+	}
+
+	public SimpleEnvironment setOutputDPI(int outputDpi) {
+		this.outputDpi = outputDpi;
+		return this;
+	}
+
+	@Override
+	public boolean useOutputPalette() {
+		return outputPalette != null ? outputPalette : fallback.useOutputPalette();
+	}
+
+	public SimpleEnvironment setOutputPalette(boolean outputPalette) {
+		this.outputPalette = outputPalette;
+		return this;
+	}
+
+	@Override
+	public boolean cropOutputToDifferences() {
+		return cropOutputToDifferences != null ? cropOutputToDifferences : fallback.cropOutputToDifferences();
+	}
+
+	public SimpleEnvironment setCropOutputToDifferences(boolean cropOutputToDifferences) {
+		this.cropOutputToDifferences = cropOutputToDifferences;
+		return this;
+	}
+
+	@Override
+	public boolean writeDifferencesOnly() {
+		return differencesOnly != null ? differencesOnly : fallback.writeDifferencesOnly();
+	}
+
+	public SimpleEnvironment setDifferencesOnly(boolean differencesOnly) {
+		this.differencesOnly = differencesOnly;
+		return this;
+	}
+
+	@Override
+	public boolean collectDifferenceMasks() {
+		return differenceMasks != null ? differenceMasks : fallback.collectDifferenceMasks();
+	}
+
+	public SimpleEnvironment setDifferenceMasks(boolean differenceMasks) {
+		this.differenceMasks = differenceMasks;
+		return this;
+	}
+
+	@Override
+	public int getDiffAreaMergeDistance() {
+		return diffAreaMergeDistance != null ? diffAreaMergeDistance : fallback.getDiffAreaMergeDistance();
+	}
+
+	public SimpleEnvironment setDiffAreaMergeDistance(int diffAreaMergeDistance) {
+		this.diffAreaMergeDistance = diffAreaMergeDistance;
+		return this;
+	}
+
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Java Flight Recorder events around the expensive steps of a comparison.
+ * <p>
+ * This implementation is only loaded on Java 11 and newer from the
+ * multi-release jar. It replaces the no-op baseline implementation with the
+ * same signatures. When an event type is not enabled in the running recording,
+ * no event object is created and the {@code end} methods return immediately.
+ * The Java 6 signature check skips the classes of this layer.
+ */
+@IgnoreJRERequirement
+final class FlightRecorderEvents {
+
+	private static final String CATEGORY = "PdfCompare";
+	private static final EventType RENDER = EventType.getEventType(RenderEvent.class);
+	private static final EventType DIFF = EventType.getEventType(DiffEvent.class);
+	private static final EventType SWAP = EventType.getEventType(SwapEvent.class);
+	private static final EventType WRITE = EventType.getEventType(WriteEvent.class);
+
+	private FlightRecorderEvents() {
+	}
+
+	static Object beginRender() {
+		return RENDER.isEnabled() ? begin(new RenderEvent()) : null;
+	}
+
+	static void endRender(final Object event, final int pageIndex, final int width, final int height,
+			final int dpi) {
+		if (event != null) {
+			final RenderEvent e = (RenderEvent) event;
+			e.pageIndex = pageIndex;
+			e.width = width;
+			e.height = height;
+			e.dpi = dpi;
+			commit(e);
+		}
+	}
+
+	static Object beginDiff() {
+		return DIFF.isEnabled() ? begin(new DiffEvent()) : null;
+	}
+
+	static void endDiff(final Object event, final int pageIndex, final int width, final int height,
+			final int diffsFound, final int diffsFoundInExclusion) {
+		if (event != null) {
+			final DiffEvent e = (DiffEvent) event;
+			e.pageIndex = pageIndex;
+			e.width = width;
+			e.height = height;
+			e.diffsFound = diffsFound;
+			e.diffsFoundInExclusion = diffsFoundInExclusion;
+			commit(e);
+		}
+	}
+
+	static Object beginSwap() {
+		return SWAP.isEnabled() ? begin(new SwapEvent()) : null;
+	}
+
+	static void endSwap(final Object event, final int pages, final long bytes) {
+		if (event != null) {
+			final SwapEvent e = (SwapEvent) event;
+			e.pages = pages;
+			e.bytes = bytes;
+			commit(e);
+		}
+	}
+
+	static Object beginWrite() {
+		return WRITE.isEnabled() ? begin(new WriteEvent()) : null;
+	}
+
+	static void endWrite(final Object event, final int pages, final long bytesWritten) {
+		if (event != null) {
+			final WriteEvent e = (WriteEvent) event;
+			e.pages = pages;
+			e.bytesWritten = bytesWritten;
+			commit(e);
+		}
+	}
+
+	private static Event begin(final Event event) {
+		event.begin();
+		return event;
+	}
+
+	private static void commit(final Event event) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.commit();
+		}
+	}
+
+	@Name("de.redsix.pdfcompare.Render")
+	@Label("Render Page")
+	@Category(CATEGORY)
+	@Description("Rendering of one PDF page into an image")
+	@IgnoreJRERequirement
+	static final class RenderEvent extends Event {
+
+		@Label("Page Index")
+		int pageIndex;
+
+		@Label("Width")
+		@Description("Width of the rendered image in pixels")
+		int width;
+
+		@Label("Height")
+		@Description("Height of the rendered image in pixels")
+		int height;
+
+		@Label("DPI")
+		int dpi;
+	}
+
+	@Name("de.redsix.pdfcompare.Diff")
+	@Label("Diff Page")
+	@Category(CATEGORY)
+	@Description("Pixel comparison of one pair of pages")
+	@IgnoreJRERequirement
+	static final class DiffEvent extends Event {
+
+		@Label("Page Index")
+		int pageIndex;
+
+		@Label("Width")
+		@Description("Width of the result image in pixels")
+		int width;
+
+		@Label("Height")
+		@Description("Height of the result image in pixels")
+		int height;
+
+		@Label("Differences")
+		@Description("Number of differing pixels outside of exclusions")
+		int diffsFound;
+
+		@Label("Differences In Exclusions")
+		@Description("Number of differing pixels inside of exclusions")
+		int diffsFoundInExclusion;
+	}
+
+	@Name("de.redsix.pdfcompare.Swap")
+	@Label("Swap Pages")
+	@Category(CATEGORY)
+	@Description("Swapping of result images to disk")
+	@IgnoreJRERequirement
+	static final class SwapEvent extends Event {
+
+		@Label("Pages")
+		int pages;
+
+		@Label("Bytes")
+		@Description("Raster size of the swapped images")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("de.redsix.pdfcompare.Write")
+	@Label("Write Result")
+	@Category(CATEGORY)
+	@Description("Merging of the result images into a PDF document and writing it")
+	@IgnoreJRERequirement
+	static final class WriteEvent extends Event {
+
+		@Label("Pages")
+		int pages;
+
+		@Label("Bytes Written")
+		@Description("Size of the written PDF, -1 when unknown")
+		@DataAmount
+		long bytesWritten;
+	}
+}
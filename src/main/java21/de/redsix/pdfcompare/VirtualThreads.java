@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Access to virtual threads on Java 21 and newer.
+ * <p>
+ * This implementation is only loaded from the multi-release jar. It replaces
+ * the baseline implementation with the same signatures. The Java 6 signature
+ * check skips the classes of this layer.
+ */
+@IgnoreJRERequirement
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	static boolean isSupported() {
+		return true;
+	}
+
+	static ThreadFactory newThreadFactory(final String name) {
+		return Thread.ofVirtual().name(name + "-virtual-", 1).factory();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class AbstractCompareResultWithSwapTest {
+
+	@Test
+	public void pagesAddedConcurrentlyWhileSwappingAreAllWritten() throws Exception {
+		val metrics = new PipelineMetrics();
+		val result = new CompareResultWithPageOverflow(2);
+		result.setMetrics(metrics);
+		result.setEnvironment(new SimpleEnvironment());
+		final ExecutorService threads = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 40; i++) {
+			final int pageIndex = i;
+			threads.execute(
+					() -> result.addPage(new PageDiffCalculator(true, false), pageIndex, image(), image(), image()));
+		}
+		threads.shutdown();
+		assertThat(threads.awaitTermination(1, TimeUnit.MINUTES), is(true));
+		result.done();
+		assertThat(metrics.getBytesSwapped(), is(greaterThan(0L)));
+
+		val out = new ByteArrayOutputStream();
+		result.writeTo(out);
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(40));
+	}
+
+	@Test
+	public void pagesAddedAfterDoneAreIgnored() {
+		val result = new CompareResultWithPageOverflow(1);
+		result.setEnvironment(new SimpleEnvironment());
+		result.addPage(new PageDiffCalculator(true, false), 0, image(), image(), image());
+		result.done();
+		result.addPage(new PageDiffCalculator(true, false), 1, image(), image(), image());
+		result.addPage(new PageDiffCalculator(true, false), 2, image(), image(), image());
+		assertThat(result.getNumberOfPages(), is(1));
+	}
+
+	private static ImageWithDimension image() {
+		return new ImageWithDimension(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), 20, 10);
+	}
+}
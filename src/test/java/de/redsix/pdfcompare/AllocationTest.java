@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+/**
+ * Guards against allocations per pixel in the comparison. The bytes allocated
+ * by the comparing thread are measured and checked against a budget, that is
+ * mostly made up of the images, that have to be allocated anyway. An object per
+ * pixel exceeds the budget many times over.
+ */
+public class AllocationTest {
+
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 1400;
+	private static final long RASTER_BYTES = WIDTH * HEIGHT * 4L;
+	private static final long SLACK = 512 * 1024;
+
+	private com.sun.management.ThreadMXBean threads;
+
+	@BeforeEach
+	public void setUp() {
+		val threadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean, "Allocation measurement not available");
+		threads = (com.sun.management.ThreadMXBean) threadMXBean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocation measurement not supported");
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void diffOfEqualPagesAllocatesTheResultImageOnly() throws IOException {
+		val image = image(0);
+		val bytes = allocatedBytes(() -> diff(image, image, new Exclusions(environment())));
+		assertThat(bytes, lessThan(RASTER_BYTES + SLACK));
+	}
+
+	@Test
+	public void diffOfDifferingPagesAllocatesTheResultImageOnly() throws IOException {
+		val expected = image(0);
+		val actual = image(0x00FFFFFF);
+		val bytes = allocatedBytes(() -> diff(expected, actual, new Exclusions(environment())));
+		assertThat(bytes, lessThan(RASTER_BYTES + SLACK));
+	}
+
+	@Test
+	public void diffWithManyExclusionsAllocatesTheResultImageOnly() throws IOException {
+		val expected = image(0);
+		val actual = image(0x00FFFFFF);
+		val exclusions = new Exclusions(environment());
+		for (int i = 0; i < 100; i++) {
+			exclusions.add(new PageArea(1, i * 10, i * 14, i * 10 + 5, i * 14 + 7));
+		}
+		val bytes = allocatedBytes(() -> diff(expected, actual, exclusions));
+		assertThat(bytes, lessThan(RASTER_BYTES + SLACK));
+	}
+
+	@Test
+	public void renderingAPageAllocatesLittleMoreThanItsImage() throws IOException {
+		@Cleanup
+		val document = PDDocument.load(r("expected.pdf"));
+		val renderer = new PDFRenderer(document);
+		val environment = environment();
+		val rasterBytes = rasterBytes(PdfComparator.renderPageAsImage(document, renderer, 0, environment));
+		val bytes = allocatedBytes(() -> PdfComparator.renderPageAsImage(document, renderer, 0, environment));
+		assertThat(bytes, lessThan(2 * rasterBytes));
+	}
+
+	@Test
+	public void comparingAPageAllocatesLittleMoreThanItsImages() throws IOException {
+		@Cleanup
+		val document = PDDocument.load(r("expected.pdf"));
+		val rasterBytes = rasterBytes(
+				PdfComparator.renderPageAsImage(document, new PDFRenderer(document), 0, environment()));
+		val pages = document.getNumberOfPages();
+		// expected, actual and diff image per page, on this thread, as nothing runs in
+		// parallel
+		val bytes = allocatedBytes(
+				() -> new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withEnvironment(environment()).compare());
+		assertThat(bytes / pages, lessThan(4 * rasterBytes));
+	}
+
+	private long allocatedBytes(final Action action) throws IOException {
+		action.run();
+		final long threadId = Thread.currentThread().getId();
+		final long before = threads.getThreadAllocatedBytes(threadId);
+		action.run();
+		return threads.getThreadAllocatedBytes(threadId) - before;
+	}
+
+	private static long rasterBytes(final ImageWithDimension image) {
+		return image.bufferedImage.getWidth() * image.bufferedImage.getHeight() * 4L;
+	}
+
+	private static void diff(final BufferedImage expected, final BufferedImage actual, final Exclusions exclusions) {
+		val environment = environment();
+		val compareResult = new CompareResultImpl();
+		compareResult.setEnvironment(environment);
+		new DiffImage(new ImageWithDimension(expected, WIDTH, HEIGHT), new ImageWithDimension(actual, WIDTH, HEIGHT), 0,
+				environment, exclusions, compareResult).diffImages();
+	}
+
+	private static SimpleEnvironment environment() {
+		return new SimpleEnvironment().setParallelProcessing(false).setDPI(100);
+	}
+
+	private static BufferedImage image(final int xor) {
+		val image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, ((x * 31 + y * 17) & 0xFFFFFF) ^ xor);
+			}
+		}
+		return image;
+	}
+
+	private InputStream r(final String filename) {
+		return getClass().getResourceAsStream(filename);
+	}
+
+	private interface Action {
+
+		void run() throws IOException;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class CompareAsyncTest {
+
+	private static final int PAGES = 30;
+
+	@Test
+	public void asyncComparisonDeliversTheResult() throws Exception {
+		val future = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).compareAsync();
+		val result = future.get(1, TimeUnit.MINUTES);
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+	}
+
+	@Test
+	public void cancellingStopsTheComparisonAndReleasesMemory() throws Exception {
+		val document = document("expected");
+		final PdfComparator<CompareResultImpl> comparator = new PdfComparator<>(new ByteArrayInputStream(document),
+				new ByteArrayInputStream(document("actual")));
+		comparator.withPageListener(pageResult -> comparator.cancel());
+		val result = comparator.compareAsync().get(1, TimeUnit.MINUTES);
+		assertThat(result.getNumberOfPages(), is(lessThan(PAGES)));
+		assertThat(awaitReleasedReservations(), is(0L));
+	}
+
+	@Test
+	public void cancellingTheFutureCancelsTheComparison() throws Exception {
+		val comparator = new PdfComparator<>(new ByteArrayInputStream(document("expected")),
+				new ByteArrayInputStream(document("actual")));
+		val future = comparator.compareAsync();
+		future.cancel(true);
+		assertThat(future.isCancelled(), is(true));
+		assertThat(comparator.compare().getNumberOfPages(), is(0));
+		assertThat(awaitReleasedReservations(), is(0L));
+	}
+
+	@Test
+	public void exceedingTheOverallTimeoutFailsTheFuture() throws Exception {
+		val future = new PdfComparator<>(new ByteArrayInputStream(document("expected")),
+				new ByteArrayInputStream(document("actual")))
+						.withEnvironment(new SimpleEnvironment().setOverallTimeout(0)).compareAsync();
+		val exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.MINUTES));
+		assertThat(exception.getCause(), is(instanceOf(TimeoutException.class)));
+		assertThat(awaitReleasedReservations(), is(0L));
+	}
+
+	@Test
+	public void pagesExceedingThePageTimeoutAreLeftOut() throws Exception {
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+				.withEnvironment(new SimpleEnvironment().setPageTimeout(0)).compare();
+		assertThat(result.getNumberOfPages(), is(0));
+		assertThat(awaitReleasedReservations(), is(0L));
+	}
+
+	private static long awaitReleasedReservations() throws InterruptedException {
+		for (int i = 0; i < 100 && RenderAdmission.global().getReservedBytes() > 0; i++) {
+			Thread.sleep(50);
+		}
+		return RenderAdmission.global().getReservedBytes();
+	}
+
+	private static byte[] document(final String text) throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		for (int i = 0; i < PAGES; i++) {
+			val page = new PDPage(PDRectangle.A4);
+			document.addPage(page);
+			@Cleanup
+			val contentStream = new PDPageContentStream(document, page);
+			contentStream.beginText();
+			contentStream.setFont(PDType1Font.HELVETICA, 12);
+			contentStream.newLineAtOffset(100, 700);
+			contentStream.showText(text + " on page " + (i + 1));
+			contentStream.endText();
+		}
+		val out = new ByteArrayOutputStream();
+		document.save(out);
+		return out.toByteArray();
+	}
+
+	private InputStream r(final String filename) {
+		return getClass().getResourceAsStream(filename);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class CompareResultWithStreamingOutputTest {
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Test
+	public void pagesFinishingOutOfOrderAreWrittenInOrder() throws Exception {
+		val result = newResult(true);
+		addPage(result, 2);
+		addPage(result, 0);
+		addPage(result, 1);
+		result.done();
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(3));
+		for (int i = 0; i < 3; i++) {
+			assertThat(written.getPage(i).getMediaBox().getWidth(), is(width(i)));
+		}
+	}
+
+	@Test
+	public void failedPagesDoNotHoldBackLaterPages() throws Exception {
+		val result = newResult(false);
+		addPage(result, 0);
+		addPage(result, 2);
+		assertThat(result.getBufferedPages(), is(1));
+		result.pageFailed(1);
+		assertThat(result.getBufferedPages(), is(0));
+		result.done();
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(2));
+	}
+
+	@Test
+	public void writingToAnotherTargetIsRejected() {
+		val result = newResult(false);
+		addPage(result, 0);
+		result.done();
+		assertThat(result.writeTo(out), is(false));
+		assertThrows(IllegalArgumentException.class, () -> result.writeTo(new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, () -> result.writeTo("result"));
+	}
+
+	private CompareResultWithStreamingOutput newResult(final boolean parallel) {
+		val result = new CompareResultWithStreamingOutput(out);
+		result.setEnvironment(new SimpleEnvironment().setParallelProcessing(parallel));
+		return result;
+	}
+
+	private static void addPage(final CompareResultWithStreamingOutput result, final int pageIndex) {
+		final int width = (int) width(pageIndex);
+		val image = new ImageWithDimension(new BufferedImage(width, 10, BufferedImage.TYPE_INT_RGB), width, 10);
+		result.addPage(new PageDiffCalculator(true, false), pageIndex, image, image, image);
+	}
+
+	private static float width(final int pageIndex) {
+		return 10 + pageIndex * 5;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressedImageTest {
+
+	@Test
+	public void uniformRowsAreStoredAsSingleRuns() {
+		val image = new BufferedImage(1000, 100, BufferedImage.TYPE_INT_RGB);
+		fill(image, Color.WHITE);
+		image.setRGB(500, 50, Color.RED.getRGB());
+		val compressed = CompressedImage.of(new ImageWithDimension(image, 10.5f, 8.5f));
+		assertThat(compressed.getSize(), is((99 * 3 + 7) * 4L));
+		val restored = compressed.restore();
+		assertThat(restored.width, is(10.5f));
+		assertThat(restored.height, is(8.5f));
+		assertSamePixels(restored.bufferedImage, image);
+	}
+
+	@Test
+	public void noisyRowsAreStoredAsPlainPixels() {
+		val image = new BufferedImage(50, 20, BufferedImage.TYPE_INT_RGB);
+		val random = new Random(42);
+		for (int y = 0; y < 20; y++) {
+			for (int x = 0; x < 50; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		val compressed = CompressedImage.of(new ImageWithDimension(image, 1, 1));
+		assertThat(compressed.getSize(), is(20 * 51 * 4L));
+		assertSamePixels(compressed.restore().bufferedImage, image);
+	}
+
+	@Test
+	public void imagesOfOtherTypesAreRestoredAsRgb() {
+		val image = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+		image.setRGB(5, 5, Color.GREEN.getRGB());
+		assertSamePixels(CompressedImage.of(new ImageWithDimension(image, 1, 1)).restore().bufferedImage, image);
+	}
+
+	private static void fill(final BufferedImage image, final Color color) {
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				image.setRGB(x, y, color.getRGB());
+			}
+		}
+	}
+
+	private static void assertSamePixels(final BufferedImage actual, final BufferedImage expected) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+			}
+		}
+	}
+}
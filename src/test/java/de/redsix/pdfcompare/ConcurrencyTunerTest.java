@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.MetricsListener.Stage;
+
+public class ConcurrencyTunerTest {
+
+	private static final long MB = 1024 * 1024;
+
+	private ThreadPoolExecutor executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MINUTES, new ArrayBlockingQueue<Runnable>(2));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void rendersWithOneThreadPerDocument() {
+		assertThat(ConcurrencyTuner.renderThreads(1), is(1));
+		assertThat(ConcurrencyTuner.renderThreads(2), is(2));
+		assertThat(ConcurrencyTuner.renderThreads(16), is(2));
+	}
+
+	@Test
+	public void diffThreadsAreBoundByProcessorsAndMemory() {
+		assertThat(ConcurrencyTuner.maxDiffThreads(1, 1000 * MB, 10 * MB), is(1));
+		assertThat(ConcurrencyTuner.maxDiffThreads(8, 1000 * MB, 10 * MB), is(6));
+		assertThat(ConcurrencyTuner.maxDiffThreads(8, 120 * MB, 10 * MB), is(3));
+		assertThat(ConcurrencyTuner.maxDiffThreads(8, 10 * MB, 10 * MB), is(1));
+		assertThat(ConcurrencyTuner.maxDiffThreads(8, 10 * MB, 0), is(6));
+	}
+
+	@Test
+	public void targetFollowsRatioOfDiffToRenderTime() {
+		assertThat(ConcurrencyTuner.targetDiffThreads(100, 50, 6), is(1));
+		assertThat(ConcurrencyTuner.targetDiffThreads(100, 250, 6), is(3));
+		assertThat(ConcurrencyTuner.targetDiffThreads(100, 1000, 6), is(6));
+		assertThat(ConcurrencyTuner.targetDiffThreads(0, 1000, 6), is(1));
+	}
+
+	@Test
+	public void growsAndShrinksDiffPool() {
+		final ConcurrencyTuner tuner = new ConcurrencyTuner(MetricsListener.NONE, 8, new RenderAdmission(1000 * MB));
+		tuner.start(executor, 10 * MB);
+
+		tuner.stageFinished(Stage.RENDER_EXPECTED, 0, 100);
+		tuner.stageFinished(Stage.RENDER_ACTUAL, 0, 100);
+		tuner.stageFinished(Stage.DIFF, 0, 400);
+		assertThat(tuner.getDiffThreads(), is(4));
+		assertThat(executor.getCorePoolSize(), is(4));
+		assertThat(executor.getMaximumPoolSize(), is(4));
+
+		for (int i = 0; i < 20; i++) {
+			tuner.stageFinished(Stage.DIFF, i, 10);
+		}
+		assertThat(tuner.getDiffThreads(), is(1));
+		assertThat(executor.getCorePoolSize(), is(1));
+		assertThat(executor.getMaximumPoolSize(), is(1));
+	}
+
+	@Test
+	public void doesNotGrowWithoutMemoryHeadroom() throws Exception {
+		final RenderAdmission admission = new RenderAdmission(100 * MB);
+		final ConcurrencyTuner tuner = new ConcurrencyTuner(MetricsListener.NONE, 8, admission);
+		tuner.start(executor, MB);
+		final RenderAdmission.Reservation reservation = admission.reserve(95 * MB);
+		try {
+			tuner.stageFinished(Stage.RENDER_EXPECTED, 0, 100);
+			tuner.stageFinished(Stage.RENDER_ACTUAL, 0, 100);
+			tuner.stageFinished(Stage.DIFF, 0, 400);
+			assertThat(tuner.getDiffThreads(), is(1));
+			assertThat(executor.getMaximumPoolSize(), is(1));
+		} finally {
+			reservation.release();
+		}
+	}
+
+	@Test
+	public void passesMeasurementsOn() {
+		final long[] diffNanos = new long[1];
+		final ConcurrencyTuner tuner = new ConcurrencyTuner(new MetricsListener() {
+
+			@Override
+			public void stageFinished(final Stage stage, final int pageIndex, final long nanos) {
+				diffNanos[0] += nanos;
+			}
+
+			@Override
+			public void queueDepth(final String executor, final int depth) {
+			}
+
+			@Override
+			public void blocked(final String executor, final long nanos) {
+			}
+
+			@Override
+			public void swapped(final long bytes) {
+			}
+
+			@Override
+			public void cacheAccess(final String cache, final boolean hit) {
+			}
+		}, 4, new RenderAdmission(100 * MB));
+		tuner.stageFinished(Stage.DIFF, 0, 42);
+		assertThat(diffNanos[0], equalTo(42L));
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class DiffClustersTest {
+
+	@Test
+	public void noRunsGiveNoAreas() {
+		assertThat(new DiffClusters(5).getAreas(1), is(empty()));
+	}
+
+	@Test
+	public void touchingRunsFormOneArea() {
+		val clusters = new DiffClusters(0);
+		clusters.addRun(10, 20, 30);
+		clusters.addRun(11, 30, 40);
+		clusters.addRun(12, 5, 20);
+		assertThat(clusters.getAreas(2), contains(new PageArea(2, 5, 10, 40, 12)));
+	}
+
+	@Test
+	public void distantRunsFormSeparateAreas() {
+		val clusters = new DiffClusters(5);
+		clusters.addRun(10, 100, 110);
+		clusters.addRun(10, 10, 20);
+		clusters.addRun(30, 10, 20);
+		assertThat(clusters.getAreas(1), contains(new PageArea(1, 10, 10, 20, 10), new PageArea(1, 100, 10, 110, 10),
+				new PageArea(1, 10, 30, 20, 30)));
+	}
+
+	@Test
+	public void runsWithinMergeDistanceAreJoined() {
+		val clusters = new DiffClusters(5);
+		clusters.addRun(10, 10, 20);
+		clusters.addRun(10, 25, 30);
+		clusters.addRun(15, 10, 20);
+		clusters.addRun(22, 10, 20);
+		assertThat(clusters.getAreas(1), contains(new PageArea(1, 10, 10, 30, 15), new PageArea(1, 10, 22, 20, 22)));
+	}
+
+	@Test
+	public void clustersConnectedByALaterRunAreJoined() {
+		val clusters = new DiffClusters(0);
+		clusters.addRun(0, 0, 0);
+		clusters.addRun(0, 10, 10);
+		clusters.addRun(1, 0, 10);
+		assertThat(clusters.getAreas(1), contains(new PageArea(1, 0, 0, 10, 1)));
+	}
+
+	@Test
+	public void areasGrownByMergingJoinAreasPassedBefore() {
+		val clusters = new DiffClusters(2);
+		clusters.addRun(0, 50, 60);
+		clusters.addRun(1, 0, 10);
+		for (int y = 2; y < 10; y++) {
+			clusters.addRun(y, 0, 10 + 5 * y);
+		}
+		assertThat(clusters.getAreas(1), contains(new PageArea(1, 0, 0, 60, 9)));
+	}
+
+	@Test
+	public void areasPassedBeforeAreJoinedWhenAnAreaGrowsByMerging() {
+		val clusters = new DiffClusters(0);
+		clusters.addRun(0, 0, 0);
+		clusters.addRun(0, 21, 21);
+		for (int y = 1; y < 5; y++) {
+			clusters.addRun(y, 0, 0);
+			if (y == 3) {
+				clusters.addRun(y, 20, 20);
+			}
+		}
+		clusters.addRun(5, 0, 19);
+		assertThat(clusters.getAreas(1), contains(new PageArea(1, 0, 0, 21, 5)));
+	}
+
+	@Test
+	public void isolatedPixelsStaySeparateAreas() {
+		val clusters = new DiffClusters(1);
+		for (int y = 0; y < 150; y += 3) {
+			for (int x = 0; x < 150; x += 3) {
+				clusters.addRun(y, x, x);
+			}
+		}
+		assertThat(clusters.getAreas(1).size(), is(2500));
+	}
+}
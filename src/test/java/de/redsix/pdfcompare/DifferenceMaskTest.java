@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class DifferenceMaskTest {
+
+	@Test
+	public void setPixelsAreReported() {
+		val mask = new DifferenceMask(130, 3);
+		mask.set(0, 0);
+		mask.set(64, 1);
+		mask.set(129, 2);
+		assertThat(mask.isSet(0, 0), is(true));
+		assertThat(mask.isSet(64, 1), is(true));
+		assertThat(mask.isSet(129, 2), is(true));
+		assertThat(mask.isSet(1, 0), is(false));
+		assertThat(mask.isSet(0, 1), is(false));
+		assertThat(mask.cardinality(), is(3));
+	}
+
+	@Test
+	public void runsAreIteratedAcrossWordBoundaries() {
+		val mask = new DifferenceMask(200, 2);
+		for (int x = 60; x < 140; x++) {
+			mask.set(x, 0);
+		}
+		mask.set(5, 1);
+		mask.set(7, 1);
+		mask.set(199, 1);
+		assertThat(runsOf(mask), is(Arrays.asList("0:60-139", "1:5-5", "1:7-7", "1:199-199")));
+	}
+
+	@Test
+	public void aFullRowIsASingleRun() {
+		val mask = new DifferenceMask(128, 1);
+		for (int x = 0; x < 128; x++) {
+			mask.set(x, 0);
+		}
+		assertThat(runsOf(mask), is(Arrays.asList("0:0-127")));
+	}
+
+	private static List<String> runsOf(final DifferenceMask mask) {
+		final List<String> runs = new ArrayList<>();
+		mask.forEachRun((y, x1, x2) -> runs.add(y + ":" + x1 + "-" + x2));
+		return runs;
+	}
+}
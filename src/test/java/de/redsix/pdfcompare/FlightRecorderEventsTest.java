@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FlightRecorderEventsTest {
+
+	@Test
+	public void baselineRecordsNothing() {
+		assertThat(FlightRecorderEvents.beginRender(), is(nullValue()));
+		assertThat(FlightRecorderEvents.beginDiff(), is(nullValue()));
+		assertThat(FlightRecorderEvents.beginSwap(), is(nullValue()));
+		assertThat(FlightRecorderEvents.beginWrite(), is(nullValue()));
+		FlightRecorderEvents.endDiff(null, 0, 10, 10, 1, 0);
+	}
+
+	@Test
+	public void versionedLayerEmitsEventsOnlyWhileRecording() throws Exception {
+		assumeTrue(hasFlightRecorder());
+		final File classes = new File(
+				FlightRecorderEvents.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		final File versioned = new File(classes, "META-INF/versions/11");
+		assumeTrue(versioned.isDirectory());
+		final URLClassLoader loader = new URLClassLoader(new URL[] { versioned.toURI().toURL() },
+				FlightRecorderEventsTest.class.getClassLoader().getParent());
+		try {
+			final Class<?> events = loader.loadClass(FlightRecorderEvents.class.getName());
+			final Method beginDiff = events.getDeclaredMethod("beginDiff");
+			final Method endDiff = events.getDeclaredMethod("endDiff", Object.class, int.class, int.class, int.class,
+					int.class, int.class);
+			beginDiff.setAccessible(true);
+			endDiff.setAccessible(true);
+
+			assertThat(beginDiff.invoke(null), is(nullValue()));
+
+			final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+			final Object recording = recordingClass.newInstance();
+			final Path file = Files.createTempFile("pdfcompare", ".jfr");
+			try {
+				recordingClass.getMethod("enable", String.class).invoke(recording, "de.redsix.pdfcompare.Diff");
+				recordingClass.getMethod("start").invoke(recording);
+				final Object event = beginDiff.invoke(null);
+				assertThat(event, is(notNullValue()));
+				endDiff.invoke(null, event, 2, 100, 50, 7, 3);
+				recordingClass.getMethod("stop").invoke(recording);
+				recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+
+				final List<?> recorded = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+						.getMethod("readAllEvents", Path.class).invoke(null, file);
+				assertThat(recorded.size(), is(1));
+				final Object diffEvent = recorded.get(0);
+				final Method getInt = diffEvent.getClass().getMethod("getInt", String.class);
+				assertThat(getInt.invoke(diffEvent, "pageIndex"), is((Object) 2));
+				assertThat(getInt.invoke(diffEvent, "width"), is((Object) 100));
+				assertThat(getInt.invoke(diffEvent, "diffsFound"), is((Object) 7));
+				assertThat(getInt.invoke(diffEvent, "diffsFoundInExclusion"), is((Object) 3));
+			} finally {
+				recordingClass.getMethod("close").invoke(recording);
+				Files.deleteIfExists(file);
+			}
+		} finally {
+			loader.close();
+		}
+	}
+
+	private static boolean hasFlightRecorder() {
+		try {
+			Class.forName("jdk.jfr.Recording");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
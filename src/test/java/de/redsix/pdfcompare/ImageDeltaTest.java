@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class ImageDeltaTest {
+
+	@Test
+	public void identicalImagesAreRestoredAsACopyOfTheReference() {
+		val reference = image(100, 80, Color.WHITE);
+		val delta = ImageDelta.of(reference, image(100, 80, Color.WHITE));
+		assertThat(delta.isIdentical(), is(true));
+		assertThat(delta.getSize(), is(0L));
+		val restored = delta.restore(reference);
+		assertThat(restored, is(not(sameInstance(reference))));
+		assertSamePixels(restored, reference);
+	}
+
+	@Test
+	public void differingPixelsAreRestoredExactly() {
+		val reference = image(100, 80, Color.WHITE);
+		val image = image(100, 80, Color.WHITE);
+		image.setRGB(0, 0, Color.RED.getRGB());
+		image.setRGB(50, 40, Color.GREEN.getRGB());
+		image.setRGB(51, 40, Color.BLUE.getRGB());
+		image.setRGB(99, 79, Color.BLACK.getRGB());
+		val delta = ImageDelta.of(reference, image);
+		assertThat(delta.isIdentical(), is(false));
+		assertThat(delta.getSize(), is(10 * 4L));
+		assertSamePixels(delta.restore(reference), image);
+	}
+
+	@Test
+	public void imagesOfOtherTypesAreRestoredByTheirRgbValues() {
+		val reference = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+		val image = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+		image.setRGB(5, 5, Color.GREEN.getRGB());
+		assertSamePixels(ImageDelta.of(reference, image).restore(reference), image);
+	}
+
+	@Test
+	public void imagesWithMostPixelsDifferentHaveNoDelta() {
+		val reference = image(100, 80, Color.WHITE);
+		val image = image(100, 80, Color.WHITE);
+		for (int y = 0; y < 80; y++) {
+			for (int x = 0; x < 100; x += 2) {
+				image.setRGB(x, y, Color.RED.getRGB());
+			}
+		}
+		assertThat(ImageDelta.of(reference, image), is(nullValue()));
+	}
+
+	@Test
+	public void imagesOfDifferentSizeHaveNoDelta() {
+		assertThat(ImageDelta.of(image(100, 80, Color.WHITE), image(100, 81, Color.WHITE)), is(nullValue()));
+	}
+
+	private static BufferedImage image(final int width, final int height, final Color color) {
+		val image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, color.getRGB());
+			}
+		}
+		return image;
+	}
+
+	private static void assertSamePixels(final BufferedImage actual, final BufferedImage expected) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+			}
+		}
+	}
+}
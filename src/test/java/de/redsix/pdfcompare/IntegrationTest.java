@@ -18,14 +18,20 @@ package de.redsix.pdfcompare;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -35,9 +41,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import javax.imageio.ImageIO;
+
 import lombok.Cleanup;
 import lombok.val;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
@@ -45,6 +54,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import de.redsix.junitextensions.TempDirectory;
 import de.redsix.junitextensions.TempDirectoryExtension;
+import de.redsix.pdfcompare.env.SimpleEnvironment;
 
 @ExtendWith(TempDirectoryExtension.class)
 public class IntegrationTest {
@@ -108,6 +118,102 @@ public class IntegrationTest {
 		writeAndCompare(result);
 	}
 
+	@Test
+	public void differingDocumentsAreNotEqualUsingPageOverflowWithOverflowUsingOutputStream() throws IOException {
+		val result = new PdfComparator<CompareResultWithPageOverflow>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithPageOverflow(1)).compare();
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+		val out = new ByteArrayOutputStream();
+		result.writeTo(out);
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(2));
+	}
+
+	@Test
+	public void differingDocumentsAreWrittenWhileComparingUsingStreamingOutput() throws IOException {
+		val out = new ByteArrayOutputStream();
+		val result = new PdfComparator<CompareResultWithStreamingOutput>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithStreamingOutput(out)).compare();
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+		assertThat(result.getRetainedBytes(), is(0L));
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(2));
+	}
+
+	@Test
+	public void differingDocumentsCanBeWrittenAsImages() throws IOException {
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).compare();
+		val directory = outDir.resolve(testName);
+		assertThat(result.writeImagesTo(directory.toString()), is(false));
+		assertThat(ImageIO.read(directory.resolve("page-0001.png").toFile()).getWidth(), is(greaterThan(0)));
+		assertThat(Files.exists(directory.resolve("page-0002.png")), is(true));
+		val summary = new String(Files.readAllBytes(directory.resolve("differences.json")), "UTF-8");
+		assertThat(summary, containsString("\"page\": 1, \"image\": \"page-0001.png\", \"differencesFound\": true"));
+		assertThat(summary, containsString("\"diffArea\": { \"x1\": 237, \"y1\": 363, \"x2\": 421, \"y2\": 408 }"));
+		assertThat(summary,
+				containsString("\"differences\": [ { \"x1\": 237, \"y1\": 363, \"x2\": 421, \"y2\": 408 } ]"));
+
+		val separated = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+				.withEnvironment(new SimpleEnvironment().setDiffAreaMergeDistance(0)).compare();
+		val separatedDirectory = outDir.resolve(testName + "-separated");
+		separated.writeImagesTo(separatedDirectory.toString());
+		val separatedSummary = new String(Files.readAllBytes(separatedDirectory.resolve("differences.json")), "UTF-8");
+		val firstPage = separatedSummary.substring(separatedSummary.indexOf("\"page\": 1,"),
+				separatedSummary.indexOf("\"page\": 2,"));
+		val differences = firstPage.substring(firstPage.indexOf("\"differences\": ["));
+		assertThat(differences.split("\"x1\"").length - 1, is(greaterThan(1)));
+	}
+
+	@Test
+	public void differingDocumentsAreNotEqualUsingPageOverflowWrittenAsImages() throws IOException {
+		val result = new PdfComparator<CompareResultWithPageOverflow>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithPageOverflow(1)).compare();
+		val directory = outDir.resolve(testName);
+		result.writeImagesTo(directory.toString());
+		assertThat(Files.exists(directory.resolve("page-0001.png")), is(true));
+		assertThat(Files.exists(directory.resolve("page-0002.png")), is(true));
+	}
+
+	@Test
+	public void actualImagesAreRestoredFromTheExpectedImages() throws IOException {
+		val result = new PdfComparator<CompareResultWithExpectedAndActual>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithExpectedAndActual()).compare();
+		val expected = result.getExpectedImage(0);
+		val actual = result.getActualImage(0);
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getRGB(0, 0), is(expected.getRGB(0, 0)));
+		assertThat(actual.getRGB(300, 380) != expected.getRGB(300, 380), is(true));
+	}
+
+	@Test
+	public void identicalActualImagesAreRestoredOnceAndDoNotAliasTheExpectedImages() throws IOException {
+		val result = new PdfComparator<CompareResultWithExpectedAndActual>(r("expected.pdf"), r("expected.pdf"),
+				new CompareResultWithExpectedAndActual()).compare();
+		val actual = result.getActualImage(1);
+		assertThat(actual, is(not(sameInstance(result.getExpectedImage(1)))));
+		assertThat(actual.getRGB(300, 380), is(result.getExpectedImage(1).getRGB(300, 380)));
+		assertThat(result.getActualImage(1), is(sameInstance(actual)));
+	}
+
+	@Test
+	public void differingDocumentsAreNotEqualUsingCompressedImages() throws IOException {
+		val result = new PdfComparator<CompareResultWithCompressedImages>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithCompressedImages()).compare();
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+		assertThat(result.getRetainedBytes(), is(lessThan(2L * 1024 * 1024)));
+		val out = new ByteArrayOutputStream();
+		result.writeTo(out);
+		assertThat(result.getRetainedBytes(), is(0L));
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(2));
+	}
+
 	@Test
 	public void differingDocumentsAreNotEqualUsingMemoryOverflow() throws IOException {
 		val result = new PdfComparator<CompareResultWithMemoryOverflow>(r("expected.pdf"), r("actual.pdf"),
@@ -118,6 +224,19 @@ public class IntegrationTest {
 		writeAndCompare(result);
 	}
 
+	@Test
+	public void differingDocumentsAreNotEqualUsingMemoryOverflowWithOverflow() throws IOException {
+		val result = new PdfComparator<CompareResultWithMemoryOverflow>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithMemoryOverflow(1)).compare();
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getRetainedBytes(), is(0L));
+		val out = new ByteArrayOutputStream();
+		result.writeTo(out);
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(2));
+	}
+
 	@Test
 	public void differingDocumentsWithIgnoreAreEqual() throws IOException {
 		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withIgnore("ignore.conf").compare();
@@ -148,6 +267,69 @@ public class IntegrationTest {
 		writeAndCompare(result);
 	}
 
+	@Test
+	public void onlyPagesWithDifferencesAreWrittenWhenDifferencesOnly() throws IOException {
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+				.withEnvironment(new SimpleEnvironment().setDifferencesOnly(true))
+				.with(new PageArea(1, 230, 350, 450, 420)).compare();
+		assertThat(result.isNotEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+		val out = new ByteArrayOutputStream();
+		result.writeTo(out);
+		assertOnlySecondPageWritten(out);
+	}
+
+	@Test
+	public void onlyPagesWithDifferencesAreStreamedWhenDifferencesOnly() throws IOException {
+		val out = new ByteArrayOutputStream();
+		new PdfComparator<CompareResultWithStreamingOutput>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithStreamingOutput(out))
+						.withEnvironment(new SimpleEnvironment().setDifferencesOnly(true))
+						.with(new PageArea(1, 230, 350, 450, 420)).compare();
+		assertOnlySecondPageWritten(out);
+	}
+
+	private void assertOnlySecondPageWritten(final ByteArrayOutputStream out) throws IOException {
+		@Cleanup
+		val written = PDDocument.load(out.toByteArray());
+		assertThat(written.getNumberOfPages(), is(1));
+		assertThat(written.getDocumentCatalog().getPageLabels().getLabelsByPageIndices()[0], is("2"));
+		assertThat(written.getDocumentCatalog().getDocumentOutline().getFirstChild().getTitle(), is("Page 2"));
+	}
+
+	@Test
+	public void differenceMasksCoverTheDiffArea() throws IOException {
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+				.withEnvironment(new SimpleEnvironment().setDifferenceMasks(true)).compare();
+		val diffArea = result.getDifferences().iterator().next();
+		val mask = result.getDifferenceMask(0);
+		val bounds = new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1 };
+		mask.forEachRun((y, x1, x2) -> {
+			bounds[0] = Math.min(bounds[0], x1);
+			bounds[1] = Math.min(bounds[1], y);
+			bounds[2] = Math.max(bounds[2], x2);
+			bounds[3] = Math.max(bounds[3], y);
+		});
+		assertThat(bounds, is(new int[] { diffArea.getX1(), diffArea.getY1(), diffArea.getX2(), diffArea.getY2() }));
+		assertThat(result.getDifferenceInExclusionMask(0) == null, is(true));
+	}
+
+	@Test
+	public void distantDifferencesAreReportedAsSeparateAreas() throws IOException {
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf"))
+				.withEnvironment(new SimpleEnvironment().setDiffAreaMergeDistance(0)).compare();
+		val differences = result.getDifferences();
+		assertThat(differences.size(), is(greaterThan(2)));
+		for (val area : differences) {
+			if (area.getPage() == 1) {
+				assertThat(area.getX1(), is(greaterThanOrEqualTo(237)));
+				assertThat(area.getY1(), is(greaterThanOrEqualTo(363)));
+				assertThat(area.getX2(), is(lessThanOrEqualTo(421)));
+				assertThat(area.getY2(), is(lessThanOrEqualTo(408)));
+			}
+		}
+	}
+
 	@Test
 	public void aShorterDocumentActualIsNotEqual() throws IOException {
 		val result = new PdfComparator<>(r("expected.pdf"), r("short.pdf")).compare();
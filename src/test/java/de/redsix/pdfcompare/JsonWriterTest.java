@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class JsonWriterTest {
+
+	@Test
+	public void writesIndentedObjectsAndArrays() throws IOException {
+		val out = new StringWriter();
+		val json = new JsonWriter(out);
+		json.beginObject();
+		json.name("equal").value(false);
+		json.name("pages").beginArray();
+		json.beginObject().name("page").value(1).name("area").beginObject().name("x1").value(2).endObject().endObject();
+		json.beginObject().name("page").value(2).name("area").nullValue().endObject();
+		json.endArray();
+		json.name("empty").beginArray().endArray();
+		json.endObject();
+		assertThat(out.toString(), is("{\n" //
+				+ "  \"equal\": false,\n" //
+				+ "  \"pages\": [\n" //
+				+ "    { \"page\": 1, \"area\": { \"x1\": 2 } },\n" //
+				+ "    { \"page\": 2, \"area\": null }\n" //
+				+ "  ],\n" //
+				+ "  \"empty\": []\n" //
+				+ "}\n"));
+	}
+
+	@Test
+	public void escapesNamesAndStrings() throws IOException {
+		val out = new StringWriter();
+		new JsonWriter(out).beginObject().name("a\"b").value("c:\\d\n\"e\".png").name("f").value((String) null)
+				.endObject();
+		assertThat(out.toString(), is("{\n  \"a\\\"b\": \"c:\\\\d\\n\\\"e\\\".png\",\n  \"f\": null\n}\n"));
+	}
+
+	@Test
+	public void closingWithoutOpeningFails() {
+		assertThrows(IllegalStateException.class, () -> new JsonWriter(new StringWriter()).endObject());
+	}
+}
@@ -94,4 +94,15 @@ class PageDiffCalculatorTest {
 		diffCalculator.diffFound();
 		assertTrue(diffCalculator.differencesFound());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void copyForPageMovesTheDiffAreaToTheOtherPage() {
+		val diffCalculator = new PageDiffCalculator(1000, 0);
+		diffCalculator.diffFound();
+		diffCalculator.addDiffArea(new PageArea(1, 10, 20, 30, 40));
+		val copy = diffCalculator.copyForPage(4);
+		assertTrue(copy.differencesFound());
+		assertTrue(copy.equals(diffCalculator));
+		assertTrue(copy.getDiffArea().equals(new PageArea(5, 10, 20, 30, 40)));
+	}
+}
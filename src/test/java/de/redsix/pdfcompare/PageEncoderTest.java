@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class PageEncoderTest {
+
+	@Test
+	public void pagesAreAddedInOrderWithTheirPixels() throws IOException {
+		val colors = new Color[] { Color.RED, Color.GREEN, Color.BLUE, Color.WHITE, Color.BLACK, Color.GRAY,
+				Color.ORANGE, Color.PINK, Color.CYAN, Color.MAGENTA };
+		@Cleanup
+		val document = new PDDocument();
+		val encoder = new PageEncoder(document, new SimpleEnvironment().setParallelProcessing(true));
+		try {
+			for (int i = 0; i < colors.length; i++) {
+				encoder.add(i, new ImageWithDimension(image(30 + i, 20, colors[i]), 15 + i, 10), null);
+			}
+			encoder.finish();
+		} finally {
+			encoder.close();
+		}
+		@Cleanup
+		val written = reload(document);
+		assertThat(written.getNumberOfPages(), is(colors.length));
+		for (int i = 0; i < colors.length; i++) {
+			assertThat(written.getPage(i).getMediaBox().getWidth(), is(15f + i));
+			val image = imageOf(written, i);
+			assertThat(image.getWidth(), is(30 + i));
+			assertThat(image.getImage().getRGB(3, 3), is(colors[i].getRGB()));
+		}
+	}
+
+	@Test
+	public void imagesWithAlphaAreLeftToLosslessFactory() throws IOException {
+		val image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(5, 5, Color.GREEN.getRGB());
+		@Cleanup
+		val document = new PDDocument();
+		addPage(document, new SimpleEnvironment(), new ImageWithDimension(image, 20, 10), null);
+		@Cleanup
+		val written = reload(document);
+		assertThat(imageOf(written, 0).getCOSObject().containsKey(COSName.SMASK), is(true));
+	}
+
+	@Test
+	public void imagesWithFewColorsAreStoredWithAPalette() throws IOException {
+		val image = image(40, 20, Color.WHITE);
+		image.setRGB(5, 5, Color.RED.getRGB());
+		image.setRGB(6, 5, Color.GRAY.getRGB());
+		@Cleanup
+		val document = new PDDocument();
+		addPage(document, new SimpleEnvironment().setOutputPalette(true), new ImageWithDimension(image, 40, 20), null);
+		@Cleanup
+		val written = reload(document);
+		val imageXObject = imageOf(written, 0);
+		assertThat(imageXObject.getColorSpace(), is(instanceOf(PDIndexed.class)));
+		assertThat(imageXObject.getBitsPerComponent(), is(2));
+		assertSamePixels(imageXObject.getImage(), image);
+	}
+
+	@Test
+	public void imagesWithManyColorsAreReducedToAPaletteOfAtMost256Colors() throws IOException {
+		val image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 64; y++) {
+			for (int x = 0; x < 64; x++) {
+				image.setRGB(x, y, new Color(x * 4, y * 4, 128).getRGB());
+			}
+		}
+		@Cleanup
+		val document = new PDDocument();
+		addPage(document, new SimpleEnvironment().setOutputPalette(true), new ImageWithDimension(image, 64, 64), null);
+		@Cleanup
+		val written = reload(document);
+		val imageXObject = imageOf(written, 0);
+		assertThat(imageXObject.getColorSpace(), is(instanceOf(PDIndexed.class)));
+		assertThat(imageXObject.getBitsPerComponent(), is(8));
+		val restored = new Color(imageXObject.getImage().getRGB(40, 20));
+		assertThat(Math.abs(restored.getRed() - 160) <= 16, is(true));
+		assertThat(Math.abs(restored.getGreen() - 80) <= 16, is(true));
+	}
+
+	@Test
+	public void imagesAreScaledDownToTheOutputDpiKeepingThePageSize() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		addPage(document, new SimpleEnvironment().setDPI(300).setOutputDPI(150),
+				new ImageWithDimension(image(100, 60, Color.RED), 24, 14.4f), null);
+		@Cleanup
+		val written = reload(document);
+		assertThat(imageOf(written, 0).getWidth(), is(50));
+		assertThat(imageOf(written, 0).getHeight(), is(30));
+		assertThat(written.getPage(0).getMediaBox().getWidth(), is(24f));
+	}
+
+	@Test
+	public void imagesAreCroppedToTheDiffAreaWithAMargin() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		addPage(document, new SimpleEnvironment().setDPI(40).setCropOutputToDifferences(true),
+				new ImageWithDimension(image(200, 100, Color.RED), 400, 200), new PageArea(1, 50, 20, 59, 29));
+		@Cleanup
+		val written = reload(document);
+		assertThat(imageOf(written, 0).getWidth(), is(30));
+		assertThat(imageOf(written, 0).getHeight(), is(30));
+		assertThat(written.getPage(0).getMediaBox().getWidth(), is(60f));
+	}
+
+	@Test
+	public void pagesWithIdenticalImagesShareOneImage() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		val encoder = new PageEncoder(document,
+				new SimpleEnvironment().setParallelProcessing(true).setDeduplicateOutputImages(true));
+		try {
+			encoder.add(0, new ImageWithDimension(image(30, 20, Color.RED), 15, 10), null);
+			encoder.add(1, new ImageWithDimension(image(30, 20, Color.BLUE), 15, 10), null);
+			encoder.add(2, new ImageWithDimension(image(30, 20, Color.RED), 30, 20), null);
+			encoder.finish();
+		} finally {
+			encoder.close();
+		}
+		@Cleanup
+		val written = reload(document);
+		assertThat(written.getNumberOfPages(), is(3));
+		assertThat(imageOf(written, 2).getCOSObject(), is(sameInstance(imageOf(written, 0).getCOSObject())));
+		assertThat(imageOf(written, 1).getCOSObject(), is(not(sameInstance(imageOf(written, 0).getCOSObject()))));
+		assertThat(written.getPage(2).getMediaBox().getWidth(), is(30f));
+	}
+
+	@Test
+	public void imagesAreSharedWithImagesWrittenBefore() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		val encoder = new PageEncoder(document, new SimpleEnvironment().setDeduplicateOutputImages(true));
+		val red = image(30, 20, Color.RED);
+		encoder.addPage(encoder.encode(new ImageWithDimension(red, 15, 10), null));
+		assertThat(encoder.getPendingEncodings(), is(0));
+		encoder.addPage(encoder.encode(new ImageWithDimension(image(30, 20, Color.BLUE), 15, 10), null));
+		encoder.addPage(encoder.encode(new ImageWithDimension(image(30, 20, Color.RED), 30, 20), null));
+		assertThat(encoder.getPendingEncodings(), is(0));
+		@Cleanup
+		val written = reload(document);
+		assertThat(imageOf(written, 2).getCOSObject(), is(sameInstance(imageOf(written, 0).getCOSObject())));
+		assertThat(written.getPage(2).getMediaBox().getWidth(), is(30f));
+	}
+
+	@Test
+	public void identicalImagesAreEncodedSeparatelyByDefault() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		val encoder = new PageEncoder(document, new SimpleEnvironment());
+		try {
+			encoder.add(0, new ImageWithDimension(image(30, 20, Color.RED), 15, 10), null);
+			encoder.add(1, new ImageWithDimension(image(30, 20, Color.RED), 15, 10), null);
+			encoder.finish();
+		} finally {
+			encoder.close();
+		}
+		@Cleanup
+		val written = reload(document);
+		assertThat(imageOf(written, 1).getCOSObject(), is(not(sameInstance(imageOf(written, 0).getCOSObject()))));
+	}
+
+	private static void addPage(final PDDocument document, final SimpleEnvironment environment,
+			final ImageWithDimension image, final PageArea diffArea) throws IOException {
+		val encoder = new PageEncoder(document, environment);
+		encoder.addPage(encoder.encode(image, diffArea));
+	}
+
+	private static void assertSamePixels(final BufferedImage actual, final BufferedImage expected) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+			}
+		}
+	}
+
+	private static PDDocument reload(final PDDocument document) throws IOException {
+		val out = new ByteArrayOutputStream();
+		document.save(out);
+		return PDDocument.load(out.toByteArray());
+	}
+
+	private static PDImageXObject imageOf(final PDDocument document, final int page) throws IOException {
+		val resources = document.getPage(page).getResources();
+		return (PDImageXObject) resources.getXObject(resources.getXObjectNames().iterator().next());
+	}
+
+	private static BufferedImage image(final int width, final int height, final Color color) {
+		val image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, color.getRGB());
+			}
+		}
+		return image;
+	}
+}
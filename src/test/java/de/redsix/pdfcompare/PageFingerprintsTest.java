@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import lombok.Cleanup;
+import lombok.val;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class PageFingerprintsTest {
+
+	@Test
+	public void pagesWithIdenticalContentShareACanonicalPage() throws IOException {
+		@Cleanup
+		val document = reload(documentWithPages("Terms", "Letter", "Terms", "Letter 2"));
+		val fingerprints = PageFingerprints.of(document, 4);
+		assertThat(fingerprints.canonicalPage(0), is(0));
+		assertThat(fingerprints.canonicalPage(1), is(1));
+		assertThat(fingerprints.canonicalPage(2), is(0));
+		assertThat(fingerprints.canonicalPage(3), is(3));
+	}
+
+	@Test
+	public void pagesWithDifferentSizeAreNotIdentical() throws IOException {
+		@Cleanup
+		val document = documentWithPages("Terms");
+		addPage(document, "Terms", PDRectangle.A5);
+		val fingerprints = PageFingerprints.of(reload(document), 2);
+		assertThat(fingerprints.canonicalPage(1), is(1));
+	}
+
+	@Test
+	public void uniqueMapsEveryPageToItself() {
+		val fingerprints = PageFingerprints.unique(3);
+		assertThat(fingerprints.getNumberOfPages(), is(3));
+		assertThat(fingerprints.canonicalPage(2), is(2));
+	}
+
+	@Test
+	public void identicalPagesAreRenderedOnce() throws IOException {
+		@Cleanup
+		val document = reload(documentWithPages("Terms", "Terms", "Terms"));
+		val renderer = new DocumentRenderer(document, 3, new SimpleEnvironment().setDPI(20));
+		val first = renderer.render(0);
+		assertThat(renderer.render(1), is(sameInstance(first)));
+		assertThat(renderer.render(2), is(sameInstance(first)));
+	}
+
+	@Test
+	public void deduplicationCanBeSwitchedOff() throws IOException {
+		@Cleanup
+		val document = reload(documentWithPages("Terms", "Terms"));
+		val renderer = new DocumentRenderer(document, 2, new SimpleEnvironment().setDPI(20).setDeduplicatePages(false));
+		assertThat(renderer.canonicalPage(1), is(1));
+	}
+
+	@Test
+	public void pagesWithoutResourcesAreFingerprinted() throws IOException {
+		@Cleanup
+		val document = documentWithPages("Terms");
+		document.addPage(new PDPage());
+		document.addPage(new PDPage());
+		@Cleanup
+		val reloaded = reload(document);
+		assertThat(reloaded.getPage(1).getResources(), is(nullValue()));
+		val fingerprints = PageFingerprints.of(reloaded, 3);
+		assertThat(fingerprints.canonicalPage(1), is(1));
+		assertThat(fingerprints.canonicalPage(2), is(1));
+	}
+
+	@Test
+	public void documentsWithPagesWithoutResourcesCanBeCompared() throws IOException {
+		val result = new PdfComparator<>(new ByteArrayInputStream(blankPages()), new ByteArrayInputStream(blankPages()))
+				.compare();
+		assertThat(result.isEqual(), is(true));
+		assertThat(result.getNumberOfPages(), is(2));
+	}
+
+	private static byte[] blankPages() throws IOException {
+		@Cleanup
+		val document = new PDDocument();
+		document.addPage(new PDPage());
+		document.addPage(new PDPage());
+		val out = new ByteArrayOutputStream();
+		document.save(out);
+		return out.toByteArray();
+	}
+
+	private static PDDocument documentWithPages(final String... texts) throws IOException {
+		val document = new PDDocument();
+		for (val text : texts) {
+			addPage(document, text, PDRectangle.A4);
+		}
+		return document;
+	}
+
+	private static void addPage(final PDDocument document, final String text, final PDRectangle size)
+			throws IOException {
+		val page = new PDPage(size);
+		document.addPage(page);
+		@Cleanup
+		val contentStream = new PDPageContentStream(document, page);
+		contentStream.beginText();
+		contentStream.setFont(PDType1Font.HELVETICA, 12);
+		contentStream.newLineAtOffset(100, 700);
+		contentStream.showText(text);
+		contentStream.endText();
+	}
+
+	private static PDDocument reload(final PDDocument document) throws IOException {
+		val out = new ByteArrayOutputStream();
+		document.save(out);
+		document.close();
+		return PDDocument.load(out.toByteArray());
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.PageResultListener.Order;
+
+public class PageResultDispatcherTest {
+
+	private final ImageWithDimension image = new ImageWithDimension(
+			new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), 10, 10);
+
+	@Test
+	public void completionOrderDeliversPagesRightAway() {
+		val pages = new ArrayList<Integer>();
+		val dispatcher = new PageResultDispatcher(new CompareResultImpl(), r -> pages.add(r.getPageIndex()),
+				Order.COMPLETION, false);
+		addPage(dispatcher, 2);
+		addPage(dispatcher, 0);
+		assertThat(pages, contains(2, 0));
+	}
+
+	@Test
+	public void pageOrderHoldsBackPagesUntilEarlierPagesAreDone() {
+		val pages = new ArrayList<Integer>();
+		val dispatcher = new PageResultDispatcher(new CompareResultImpl(), r -> pages.add(r.getPageIndex()), Order.PAGE,
+				false);
+		addPage(dispatcher, 1);
+		addPage(dispatcher, 3);
+		assertThat(pages.isEmpty(), is(true));
+		addPage(dispatcher, 0);
+		assertThat(pages, contains(0, 1));
+		dispatcher.done();
+		assertThat(pages, contains(0, 1, 3));
+	}
+
+	@Test
+	public void pageOrderSkipsFailedPages() {
+		val pages = new ArrayList<Integer>();
+		val result = new CompareResultImpl();
+		val dispatcher = new PageResultDispatcher(result, r -> pages.add(r.getPageIndex()), Order.PAGE, true);
+		addPage(dispatcher, 0);
+		addPage(dispatcher, 2);
+		addPage(dispatcher, 3);
+		assertThat(pages, contains(0));
+		dispatcher.pageFailed(1);
+		assertThat(pages, contains(0, 2, 3));
+		dispatcher.done();
+		assertThat(pages, contains(0, 2, 3));
+		assertThat(result.getNumberOfPages(), is(3));
+	}
+
+	@Test
+	public void diffImagesAreOnlyAvailableDuringTheCallback() {
+		val results = new ArrayList<PageResult>();
+		val images = new ArrayList<ImageWithDimension>();
+		val dispatcher = new PageResultDispatcher(new CompareResultImpl(), r -> {
+			results.add(r);
+			images.add(r.getDiffImage());
+		}, Order.COMPLETION, true);
+		addPage(dispatcher, 0);
+		assertThat(images.get(0), is(image));
+		assertThat(results.get(0).getDiffImage(), is(nullValue()));
+	}
+
+	@Test
+	public void failingListenerDoesNotStopTheComparison() {
+		val result = new CompareResultImpl();
+		val dispatcher = new PageResultDispatcher(result, r -> {
+			throw new IllegalStateException("broken");
+		}, Order.COMPLETION, false);
+		addPage(dispatcher, 0);
+		assertThat(result.getNumberOfPages(), is(1));
+	}
+
+	@Test
+	public void pagesAddedAfterDoneAreIgnored() {
+		val pages = new ArrayList<Integer>();
+		val result = new CompareResultImpl();
+		val dispatcher = new PageResultDispatcher(result, r -> pages.add(r.getPageIndex()), Order.COMPLETION, false);
+		addPage(dispatcher, 0);
+		dispatcher.done();
+		addPage(dispatcher, 1);
+		result.addPage(new PageDiffCalculator(0, 0), 2, image, image, image);
+		assertThat(pages, contains(0));
+		assertThat(result.getNumberOfPages(), is(1));
+	}
+
+	@Test
+	public void pagesAreDeliveredWhileComparing() throws IOException {
+		final List<PageResult> results = new ArrayList<>();
+		final List<Boolean> imageAvailable = new ArrayList<>();
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withPageListener(pageResult -> {
+			results.add(pageResult);
+			imageAvailable.add(pageResult.getDiffImage() != null);
+		}, Order.PAGE, true).compare();
+		assertThat(results.size(), is(2));
+		assertThat(results.get(0).getPageIndex(), is(0));
+		assertThat(results.get(1).getPageIndex(), is(1));
+		assertThat(imageAvailable, contains(true, true));
+		assertThat(results.get(1).differencesFound(), is(true));
+		assertThat(results.get(1).getDiffAreas().isEmpty(), is(false));
+		assertThat(results.get(1).getDiffAreas().get(0).getPage(), is(2));
+		assertThat(result.isNotEqual(), is(true));
+	}
+
+	@Test
+	public void extraPagesAreDeliveredWithTheWholePageAsArea() throws IOException {
+		final List<PageResult> results = new ArrayList<>();
+		new PdfComparator<>(r("expected.pdf"), r("short.pdf")).withPageListener(results::add, Order.PAGE, false)
+				.compare();
+		assertThat(results.size(), is(2));
+		val extraPage = results.get(1);
+		assertThat(extraPage.getPageIndex(), is(1));
+		assertThat(extraPage.differencesFound(), is(true));
+		assertThat(extraPage.getDiffImage(), is(nullValue()));
+		assertThat(extraPage.getDiffAreas(), contains(new PageArea(2)));
+	}
+
+	private void addPage(final ResultCollector collector, final int pageIndex) {
+		collector.addPage(new PageDiffCalculator(0, 0), pageIndex, image, image, image);
+	}
+
+	private InputStream r(final String filename) {
+		return getClass().getResourceAsStream(filename);
+	}
+}
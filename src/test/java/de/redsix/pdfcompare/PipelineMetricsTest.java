@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.MetricsListener.Stage;
+
+public class PipelineMetricsTest {
+
+	@Test
+	public void stagesAreSummedUp() {
+		val metrics = new PipelineMetrics();
+		metrics.stageFinished(Stage.DIFF, 0, TimeUnit.MILLISECONDS.toNanos(3));
+		metrics.stageFinished(Stage.DIFF, 1, TimeUnit.MILLISECONDS.toNanos(5));
+		assertThat(metrics.getStageCounts().get("DIFF"), is(2L));
+		assertThat(metrics.getStageTotalMillis().get("DIFF"), is(8L));
+		assertThat(metrics.getStageMaxMillis().get("DIFF"), is(5L));
+	}
+
+	@Test
+	public void queuesCachesAndSwapsAreAggregated() {
+		val metrics = new PipelineMetrics();
+		metrics.queueDepth("Draw", 3);
+		metrics.queueDepth("Draw", 1);
+		metrics.blocked("Draw", TimeUnit.MILLISECONDS.toNanos(2));
+		metrics.cacheAccess("diffs", true);
+		metrics.cacheAccess("diffs", false);
+		metrics.cacheAccess("diffs", false);
+		metrics.cacheAccess("diffs", true);
+		metrics.swapped(100);
+		metrics.swapped(50);
+		assertThat(metrics.getMaxQueueDepths().get("Draw"), is(3));
+		assertThat(metrics.getBlockedMillis().get("Draw"), is(2L));
+		assertThat(metrics.getCacheHitRates().get("diffs"), is(0.5));
+		assertThat(metrics.getBytesSwapped(), is(150L));
+		metrics.reset();
+		assertThat(metrics.getStageCounts().isEmpty(), is(true));
+		assertThat(metrics.getBytesSwapped(), is(0L));
+	}
+
+	@Test
+	public void aComparisonReportsAllStages() throws IOException {
+		val metrics = new PipelineMetrics();
+		val result = new PdfComparator<CompareResultWithMemoryOverflow>(r("expected.pdf"), r("actual.pdf"),
+				new CompareResultWithMemoryOverflow(1)).withMetrics(metrics).compare();
+		result.writeTo(new ByteArrayOutputStream());
+		val counts = metrics.getStageCounts();
+		assertThat(counts.get("LOAD_EXPECTED"), is(1L));
+		assertThat(counts.get("LOAD_ACTUAL"), is(1L));
+		assertThat(counts.get("RENDER_EXPECTED"), is(2L));
+		assertThat(counts.get("RENDER_ACTUAL"), is(2L));
+		assertThat(counts.get("DIFF"), is(2L));
+		assertThat(counts.get("SWAP"), is(greaterThan(0L)));
+		assertThat(counts.get("MERGE"), is(1L));
+		assertThat(counts.get("WRITE"), is(1L));
+		assertThat(metrics.getBytesSwapped(), is(greaterThan(0L)));
+		assertThat(metrics.getMaxQueueDepths(), hasKey("Draw"));
+		assertThat(metrics.getCacheHitRates().get("renderedPages"), is(0.0));
+		assertThat(metrics.getCacheHitRates().get("diffs"), is(0.0));
+	}
+
+	@Test
+	public void theGlobalMetricsAreRegisteredInJmx() throws Exception {
+		PipelineMetrics.global().stageFinished(Stage.WRITE, -1, 1);
+		val server = ManagementFactory.getPlatformMBeanServer();
+		val name = new ObjectName(PipelineMetrics.OBJECT_NAME);
+		assertThat(server.isRegistered(name), is(true));
+		assertThat(server.getAttribute(name, "BytesSwapped") instanceof Long, is(true));
+		assertThat(server.getAttribute(name, "StageCounts") != null, is(true));
+	}
+
+	private InputStream r(final String filename) {
+		return getClass().getResourceAsStream(filename);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.image.BufferedImage;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class RasterMemoryBudgetTest {
+
+	@Test
+	public void sizeIsCalculatedFromThePixelData() {
+		assertThat(RasterMemoryBudget.sizeOf(image(100, 50, BufferedImage.TYPE_INT_RGB)), is(100L * 50 * 4));
+		assertThat(RasterMemoryBudget.sizeOf(image(100, 50, BufferedImage.TYPE_3BYTE_BGR)), is(100L * 50 * 3));
+		assertThat(RasterMemoryBudget.sizeOf(image(100, 50, BufferedImage.TYPE_BYTE_GRAY)), is(100L * 50));
+	}
+
+	@Test
+	public void budgetIsExceededWhenTheLimitIsReached() {
+		val budget = new RasterMemoryBudget(1000);
+		budget.allocate(600);
+		assertThat(budget.isExceeded(), is(false));
+		budget.allocate(400);
+		assertThat(budget.isExceeded(), is(true));
+		budget.release(500);
+		assertThat(budget.isExceeded(), is(false));
+		assertThat(budget.getUsedBytes(), is(500L));
+		assertThat(budget.getPeakBytes(), is(1000L));
+	}
+
+	@Test
+	public void imagesSharedByPagesAreCountedOnce() {
+		val result = new CompareResultImpl();
+		val shared = image(100, 50, BufferedImage.TYPE_INT_RGB);
+		addPage(result, 0, shared);
+		addPage(result, 1, shared);
+		addPage(result, 2, image(10, 10, BufferedImage.TYPE_INT_RGB));
+		assertThat(result.getRetainedBytes(), is(100L * 50 * 4 + 10 * 10 * 4));
+		result.close();
+		assertThat(result.getRetainedBytes(), is(0L));
+	}
+
+	@Test
+	public void onlyResultsReactingToTheBudgetAreCharged() {
+		val budget = RasterMemoryBudget.global();
+		final long used = budget.getUsedBytes();
+		val result = new CompareResultImpl();
+		addPage(result, 0, image(100, 50, BufferedImage.TYPE_INT_RGB));
+		assertThat(budget.getUsedBytes(), is(used));
+
+		val overflow = new CompareResultWithMemoryOverflow();
+		overflow.setEnvironment(new SimpleEnvironment());
+		addPage(overflow, 0, image(100, 50, BufferedImage.TYPE_INT_RGB));
+		assertThat(budget.getUsedBytes(), is(used + 100 * 50 * 4));
+		overflow.close();
+		assertThat(budget.getUsedBytes(), is(used));
+	}
+
+	@Test
+	public void unwrittenResultsReleaseTheBudgetWhenTheyAreCollected() throws Exception {
+		val budget = RasterMemoryBudget.global();
+		final long used = budget.getUsedBytes();
+		assertThat(compareWithoutWriting(), is(false));
+		for (int i = 0; i < 100 && budget.getUsedBytes() != used; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertThat(budget.getUsedBytes(), is(used));
+	}
+
+	private boolean compareWithoutWriting() throws Exception {
+		return new PdfComparator<>(getClass().getResourceAsStream("expected.pdf"),
+				getClass().getResourceAsStream("actual.pdf"), new CompareResultWithMemoryOverflow()).compare()
+						.isEqual();
+	}
+
+	private static void addPage(final CompareResultImpl result, final int pageIndex, final ImageWithDimension image) {
+		result.addPage(new PageDiffCalculator(true, false), pageIndex, image, image, image);
+	}
+
+	private static ImageWithDimension image(final int width, final int height, final int type) {
+		return new ImageWithDimension(new BufferedImage(width, height, type), 1, 1);
+	}
+}
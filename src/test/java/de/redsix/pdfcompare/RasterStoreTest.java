@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class RasterStoreTest {
+
+	@Test
+	public void imagesAreRestoredPixelByPixel() throws IOException {
+		val store = new RasterStore(new SimpleEnvironment().setSwapCacheSize(1024 * 1024));
+		try {
+			val image = image(100, 80, Color.RED);
+			store.put(3, new ImageWithDimension(image, 10.5f, 8.5f));
+			val restored = store.take(3);
+			assertThat(restored.width, is(10.5f));
+			assertThat(restored.height, is(8.5f));
+			assertSamePixels(restored.bufferedImage, image);
+			assertThat(store.isEmpty(), is(true));
+			assertThat(store.take(3), is(nullValue()));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void imagesBeyondTheDirectCapacityAreSpilledToAFile() throws IOException {
+		val store = new RasterStore(new SimpleEnvironment().setSwapCacheSize(100 * 80 * 4));
+		try {
+			val first = image(100, 80, Color.RED);
+			val second = image(100, 80, Color.BLUE);
+			store.put(0, new ImageWithDimension(first, 1, 1));
+			store.put(1, new ImageWithDimension(second, 1, 1));
+			assertThat(store.getDirectBytes(), is(100L * 80 * 4));
+			assertThat(store.getSpilledBytes(), is(100L * 80 * 4));
+			assertSamePixels(store.take(1).bufferedImage, second);
+			assertSamePixels(store.take(0).bufferedImage, first);
+			assertThat(store.getDirectBytes(), is(0L));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void spaceOfTakenImagesIsReusedAndTheSpillFileShrinks() throws IOException {
+		final long size = 100 * 80 * 4;
+		val store = new RasterStore(new SimpleEnvironment().setSwapCacheSize(0));
+		try {
+			val replacement = image(100, 80, Color.GREEN);
+			store.put(0, new ImageWithDimension(image(100, 80, Color.RED), 1, 1));
+			store.put(1, new ImageWithDimension(image(100, 80, Color.BLUE), 1, 1));
+			store.put(2, new ImageWithDimension(image(100, 80, Color.BLACK), 1, 1));
+			assertThat(store.getSpillFileLength(), is(3 * size));
+			store.take(1);
+			assertThat(store.getSpilledBytes(), is(2 * size));
+			assertThat(store.getSpillFileLength(), is(3 * size));
+			store.put(3, new ImageWithDimension(replacement, 1, 1));
+			assertThat(store.getSpillFileLength(), is(3 * size));
+			store.take(2);
+			assertThat(store.getSpillFileLength(), is(2 * size));
+			store.take(0);
+			assertSamePixels(store.take(3).bufferedImage, replacement);
+			assertThat(store.getSpilledBytes(), is(0L));
+			assertThat(store.getSpillFileLength(), is(0L));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void imagesTooLargeForABufferAreRejected() {
+		val store = new RasterStore(new SimpleEnvironment().setSwapCacheSize(0));
+		try {
+			val huge = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB) {
+
+				@Override
+				public int getWidth() {
+					return 50000;
+				}
+
+				@Override
+				public int getHeight() {
+					return 50000;
+				}
+			};
+			assertThrows(IllegalArgumentException.class, () -> store.put(0, new ImageWithDimension(huge, 1, 1)));
+			assertThat(store.isEmpty(), is(true));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void imagesOfOtherTypesAreStoredAsRgb() throws IOException {
+		val store = new RasterStore(new SimpleEnvironment().setSwapCacheSize(1024 * 1024));
+		try {
+			val image = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+			image.setRGB(5, 5, Color.GREEN.getRGB());
+			store.put(0, new ImageWithDimension(image, 1, 1));
+			assertSamePixels(store.take(0).bufferedImage, image);
+		} finally {
+			store.close();
+		}
+	}
+
+	private static BufferedImage image(final int width, final int height, final Color color) {
+		val image = ImageTools.blankImage(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+		for (int i = 0; i < Math.min(width, height); i++) {
+			image.setRGB(i, i, color.getRGB());
+		}
+		return image;
+	}
+
+	private static void assertSamePixels(final BufferedImage actual, final BufferedImage expected) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+			}
+		}
+	}
+}
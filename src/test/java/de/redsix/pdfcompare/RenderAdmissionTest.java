@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderAdmissionTest {
+
+	@Test
+	public void reservationsWithinCapacityAreAdmitted() throws InterruptedException {
+		val admission = new RenderAdmission(1000);
+		val first = admission.reserve(400);
+		val second = admission.reserve(600);
+		assertThat(admission.getReservedBytes(), is(1000L));
+		first.release();
+		first.release();
+		second.release();
+		assertThat(admission.getReservedBytes(), is(0L));
+	}
+
+	@Test
+	public void aReservationLargerThanTheCapacityIsAdmittedWhenNothingElseIsReserved() throws InterruptedException {
+		val admission = new RenderAdmission(1000);
+		val reservation = admission.reserve(5000);
+		assertThat(admission.getReservedBytes(), is(5000L));
+		reservation.release();
+	}
+
+	@Test
+	public void reservationsWaitUntilMemoryIsReleased() throws InterruptedException {
+		val admission = new RenderAdmission(1000);
+		val first = admission.reserve(800);
+		val admitted = new CountDownLatch(1);
+		val waiting = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					admission.reserve(500);
+					admitted.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		waiting.start();
+		assertThat(admitted.await(200, TimeUnit.MILLISECONDS), is(false));
+		assertThat(admission.getWaitingReservations(), is(1));
+		first.release();
+		assertThat(admitted.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(admission.getReservedBytes(), is(500L));
+	}
+
+	@Test
+	public void cachedValuesAreOnlyKeptWhenTheyFit() {
+		val admission = new RenderAdmission(1000);
+		val cache = new DuplicateCache<Integer, String>(admission);
+		cache.expect(1);
+		cache.expect(1);
+		cache.expect(2);
+		cache.expect(2);
+		cache.offer(1, "first", 800);
+		cache.offer(2, "second", 800);
+		assertThat(cache.size(), is(1));
+		assertThat(admission.getReservedBytes(), is(800L));
+		assertThat(cache.take(2), is(nullValue()));
+		assertThat(cache.take(1), is("first"));
+		assertThat(cache.take(1), is("first"));
+		assertThat(admission.getReservedBytes(), is(0L));
+	}
+
+	@Test
+	public void cachedValuesAreEvictedForReservations() throws InterruptedException {
+		val admission = new RenderAdmission(1000);
+		val cache = new DuplicateCache<Integer, String>(admission);
+		cache.expect(1);
+		cache.expect(1);
+		cache.offer(1, "first", 800);
+		val reservation = admission.reserve(500);
+		assertThat(cache.size(), is(0));
+		assertThat(admission.getReservedBytes(), is(500L));
+		assertThat(cache.take(1), is(nullValue()));
+		reservation.release();
+	}
+
+	@Test
+	public void clearingACacheReleasesItsReservations() {
+		val admission = new RenderAdmission(1000);
+		val cache = new DuplicateCache<Integer, String>(admission);
+		cache.expect(1);
+		cache.expect(1);
+		cache.offer(1, "first", 800);
+		cache.clear();
+		assertThat(admission.getReservedBytes(), is(0L));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import de.redsix.junitextensions.TempDirectory;
+import de.redsix.junitextensions.TempDirectoryExtension;
+import de.redsix.pdfcompare.MetricsListener.Stage;
+
+@ExtendWith(TempDirectoryExtension.class)
+public class TimelineTracerTest {
+
+	@Test
+	public void spansAndCountersAreWrittenAsTraceEvents() throws IOException {
+		val tracer = new TimelineTracer();
+		tracer.stageFinished(Stage.DIFF, 2, TimeUnit.MILLISECONDS.toNanos(3));
+		tracer.stageFinished(Stage.MERGE, -1, 1500);
+		tracer.blocked("Diff", TimeUnit.MILLISECONDS.toNanos(1));
+		tracer.queueDepth("Draw", 4);
+		tracer.swapped(100);
+		tracer.swapped(50);
+		tracer.cacheAccess("diffs", true);
+		assertThat(tracer.getEventCount(), is(6));
+
+		val writer = new StringWriter();
+		tracer.writeTo(writer);
+		val json = writer.toString();
+		assertThat(json, containsString("\"traceEvents\": ["));
+		assertThat(json, containsString("{\"name\": \"DIFF page 3\", \"cat\": \"stage\", \"ph\": \"X\""));
+		assertThat(json, containsString("\"dur\": 3000.000, \"args\": {\"page\": 3}}"));
+		assertThat(json, containsString("\"name\": \"MERGE\", \"cat\": \"stage\""));
+		assertThat(json, containsString("\"dur\": 1.500}"));
+		assertThat(json, containsString("\"name\": \"blocked on Diff queue\", \"cat\": \"wait\""));
+		assertThat(json, containsString("\"name\": \"Draw queue\", \"ph\": \"C\""));
+		assertThat(json, containsString("\"args\": {\"depth\": 4}}"));
+		assertThat(json, containsString("\"args\": {\"bytes\": 150}}"));
+		assertThat(json, containsString(
+				"{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " + Thread.currentThread().getId()));
+	}
+
+	@Test
+	public void measurementsArePassedOn() {
+		val metrics = new PipelineMetrics();
+		val tracer = new TimelineTracer(metrics);
+		tracer.stageFinished(Stage.DIFF, 0, TimeUnit.MILLISECONDS.toNanos(3));
+		tracer.cacheAccess("diffs", false);
+		assertThat(metrics.getStageCounts().get("DIFF"), is(1L));
+		assertThat(metrics.getCacheHitRates().get("diffs"), is(0.0));
+	}
+
+	@Test
+	public void traceIsWrittenNextToTheResult(@TempDirectory Path outDir) throws IOException {
+		val tracer = new TimelineTracer();
+		val result = new PdfComparator<>(r("expected.pdf"), r("actual.pdf")).withMetrics(tracer).compare();
+		val filename = outDir.resolve("result").toString();
+		result.writeTo(filename);
+
+		val trace = outDir.resolve("result" + TimelineTracer.TRACE_FILE_SUFFIX);
+		assertThat(Files.exists(trace), is(true));
+		val json = new String(Files.readAllBytes(trace), StandardCharsets.UTF_8);
+		assertThat(json, containsString("\"name\": \"RENDER_EXPECTED page 1\""));
+		assertThat(json, containsString("\"name\": \"RENDER_ACTUAL page 2\""));
+		assertThat(json, containsString("\"name\": \"DIFF page 2\""));
+		assertThat(json, containsString("\"name\": \"WRITE\""));
+		assertThat(json, containsString("\"name\": \"Diff queue\", \"ph\": \"C\""));
+	}
+
+	private InputStream r(final String filename) {
+		return getClass().getResourceAsStream(filename);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Malte Finsterwalder
+ * Copyright [2018] Pablo Nicolas Diaz Bilotto [https://github.com/PabloNicolasDiaz/]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.redsix.pdfcompare;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lombok.val;
+
+import org.junit.jupiter.api.Test;
+
+import de.redsix.pdfcompare.env.SimpleEnvironment;
+
+public class VirtualThreadsTest {
+
+	private static final Runnable NOOP = () -> {
+	};
+
+	@Test
+	public void baselineHasNoVirtualThreads() {
+		assertThat(VirtualThreads.isSupported(), is(false));
+		assertThrows(UnsupportedOperationException.class, () -> VirtualThreads.newThreadFactory("Draw"));
+	}
+
+	@Test
+	public void ioStagesFallBackToPlatformThreads() throws Exception {
+		val thread = Utilities.ioThreadFactory("Draw", new SimpleEnvironment()).newThread(NOOP);
+		assertThat(thread.getName(), startsWith("Draw-"));
+
+		val executor = Utilities.blockingIoExecutor("Swap", 0, 1, 1, new SimpleEnvironment(), MetricsListener.NONE);
+		try {
+			assertThat(executor.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.MINUTES),
+					startsWith("Swap-"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void versionedLayerCreatesVirtualThreads() throws Exception {
+		final Method isVirtual;
+		try {
+			isVirtual = Thread.class.getMethod("isVirtual");
+		} catch (NoSuchMethodException e) {
+			assumeTrue(false, "Virtual threads need Java 21");
+			return;
+		}
+		final File classes = new File(VirtualThreads.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		final File versioned = new File(classes, "META-INF/versions/21");
+		assumeTrue(versioned.isDirectory(), "Java 21 layer was not built");
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { versioned.toURI().toURL() },
+				VirtualThreadsTest.class.getClassLoader().getParent())) {
+			final Class<?> virtualThreads = loader.loadClass(VirtualThreads.class.getName());
+			final Method newThreadFactory = virtualThreads.getDeclaredMethod("newThreadFactory", String.class);
+			newThreadFactory.setAccessible(true);
+			final ThreadFactory factory = (ThreadFactory) newThreadFactory.invoke(null, "Draw");
+			final Thread thread = factory.newThread(NOOP);
+			assertThat(isVirtual.invoke(thread), is((Object) true));
+			assertThat(thread.getName(), is("Draw-virtual-1"));
+		}
+	}
+}